@@ -0,0 +1,36 @@
+package application;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command line options, the allocation
+ * profiler (-prof gc) being always enabled.
+ *
+ * Usage : java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmarks regexp]
+ *
+ * @author adepreis
+ */
+public class BenchmarkMain {
+
+    /**
+     * @param args the JMH command line options.
+     * @throws RunnerException if a benchmark fails.
+     * @throws CommandLineOptionException if an option is invalid.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                // same kernels as the application (see SliceKernels)
+                .jvmArgsAppend("--add-modules=jdk.incubator.vector")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,54 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import javafx.geometry.Point3D;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversions between the geographic coordinates and the 3D points of the
+ * globe, for every cell of a 4° grid.
+ *
+ * @author adepreis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoCoordBenchmark {
+    private static final double RADIUS = 1.0;
+
+    private float[] lats;
+    private float[] lons;
+    private Point3D[] points;
+
+    @Setup
+    public void setUp() {
+        GridSpec grid = new GridSpec(-88, -178, 4, 4, 45, 90);
+        lats = new float[grid.getCellCount()];
+        lons = new float[grid.getCellCount()];
+        points = new Point3D[grid.getCellCount()];
+        for (int cell = 0; cell < lats.length; cell++) {
+            lats[cell] = (float) grid.getCellLat(cell);
+            lons[cell] = (float) grid.getCellLon(cell);
+            points[cell] = GeoCoord.geoCoordTo3dCoord(lats[cell], lons[cell], RADIUS);
+        }
+    }
+
+    @Benchmark
+    public void geoCoordTo3dCoord(Blackhole blackhole) {
+        for (int cell = 0; cell < lats.length; cell++) {
+            blackhole.consume(GeoCoord.geoCoordTo3dCoord(lats[cell], lons[cell], RADIUS));
+        }
+    }
+
+    @Benchmark
+    public void pointToGeoCoord(Blackhole blackhole) {
+        for (Point3D point : points) {
+            blackhole.consume(GeoCoord.pointLat(point));
+            blackhole.consume(GeoCoord.pointLon(point));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Reading of synthetic .csv files of several sizes, sequential and in
+ * parallel : the path of readTemperatureFile(), from an in-memory stream.
+ *
+ * @author adepreis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    // spacing of the grid, in degrees : 4050, 16200 and 64800 cells
+    @Param({"4", "2", "1"})
+    public double step;
+
+    @Param({"141"})
+    public int years;
+
+    private byte[] csv;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() {
+        csv = SyntheticGrid.csv(step, 1880, years, 42);
+
+        // each reading prints an [INFO] line
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public ResourceManager readSequential() throws IOException {
+        ResourceManager rm = new ResourceManager();
+        rm.readTemperatureData(new ByteArrayInputStream(csv), "synthetic.csv");
+        return rm;
+    }
+
+    @Benchmark
+    public ResourceManager readParallel() throws IOException {
+        ResourceManager rm = new ResourceManager();
+        rm.readTemperatureDataInParallel(new ByteArrayInputStream(csv), "synthetic.csv");
+        return rm;
+    }
+}
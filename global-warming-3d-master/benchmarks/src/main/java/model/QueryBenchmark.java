@@ -0,0 +1,68 @@
+package model;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Queries of the ResourceManager used by the views : an anomaly, a year
+ * slice and a cell series. Each call takes the next cell and year, so the
+ * results can't be folded.
+ *
+ * @author adepreis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"4", "2"})
+    public double step;
+
+    private ResourceManager rm;
+    private float[] lats;
+    private float[] lons;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        rm = SyntheticGrid.load(step, 141);
+
+        AnomalyStore store = rm.getAnomalyStore();
+        lats = new float[store.getCellCount()];
+        lons = new float[store.getCellCount()];
+        for (int cell = 0; cell < lats.length; cell++) {
+            lats[cell] = store.getCellLat(cell);
+            lons[cell] = store.getCellLon(cell);
+        }
+    }
+
+    private int nextCell() {
+        next = next + 1 < lats.length ? next + 1 : 0;
+        return next;
+    }
+
+    private int yearOf(int cell) {
+        return rm.getMinYear() + cell % rm.sampleNumber;
+    }
+
+    @Benchmark
+    public float getAnomaly() {
+        int cell = nextCell();
+        return rm.getAnomaly(lats[cell], lons[cell], yearOf(cell));
+    }
+
+    @Benchmark
+    public float[] getAllCoordFromYear() {
+        return rm.getAllCoordFromYear(yearOf(nextCell()));
+    }
+
+    @Benchmark
+    public float[] getAllYearsFromCoord() {
+        int cell = nextCell();
+        return rm.getAllYearsFromCoord(lats[cell], lons[cell]);
+    }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * SyntheticGrid class writes anomaly files for the benchmarks : a regular
+ * grid covering the globe, with random anomalies and a few "NA", in the
+ * layout of the tempanomaly .csv file.
+ *
+ * @author adepreis
+ */
+public final class SyntheticGrid {
+    // one anomaly out of NA_RATE is "NA"
+    private static final int NA_RATE = 8;
+
+    private SyntheticGrid() {}
+
+    /**
+     * Writes a synthetic .csv file in memory.
+     *
+     * @param step the spacing (in degrees) between two rows or two columns.
+     * @param firstYear the first year of the file.
+     * @param yearCount the number of years.
+     * @param seed the seed of the random anomalies.
+     * @return the content of the file.
+     */
+    public static byte[] csv(double step, int firstYear, int yearCount, long seed) {
+        Random random = new Random(seed);
+        StringBuilder line = new StringBuilder("\"lat\",\"lon\"");
+        for (int y = 0; y < yearCount; y++) {
+            line.append(",\"").append(firstYear + y).append('"');
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, line);
+
+        for (double lat = -90 + step / 2; lat < 90; lat += step) {
+            for (double lon = -180 + step / 2; lon < 180; lon += step) {
+                line.setLength(0);
+                line.append((float) lat).append(',').append((float) lon);
+                for (int y = 0; y < yearCount; y++) {
+                    line.append(',');
+                    if (random.nextInt(NA_RATE) == 0) {
+                        line.append("NA");
+                    } else {
+                        line.append(random.nextGaussian() * 2);
+                    }
+                }
+                write(out, line);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream out, StringBuilder line) {
+        line.append('\n');
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Loads a synthetic collection, from the years 1880.
+     *
+     * @param step the spacing (in degrees) between two rows or two columns.
+     * @param yearCount the number of years.
+     * @return the collection.
+     * @throws IOException if the file can't be read.
+     */
+    public static ResourceManager load(double step, int yearCount) throws IOException {
+        ResourceManager rm = new ResourceManager();
+        rm.readTemperatureData(new ByteArrayInputStream(csv(step, 1880, yearCount, 42)), "synthetic.csv");
+        return rm;
+    }
+}
@@ -0,0 +1,81 @@
+package util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import model.GlobeAnomaliesRepresentation;
+import model.GridPyramid;
+import model.GridSpec;
+import model.ResourceManager;
+import model.SyntheticGrid;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The part of drawAnomalies() which doesn't touch the scene graph : the
+ * palette indexes and the bar heights of a year, then the points of the
+ * overlays' mesh. Each call takes the next year, bypassing the frame caches.
+ *
+ * @author Antonin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlayBenchmark {
+
+    // level of the GridPyramid, 0 being the finest
+    @Param({"0", "1"})
+    public int level;
+
+    private ResourceManager rm;
+    private GridSpec grid;
+    private ColorOverlay colorOverlay;
+    private HistogramOverlay histogramOverlay;
+    private int year;
+
+    @Setup
+    public void setUp() throws IOException {
+        rm = SyntheticGrid.load(4, 141);
+
+        GridPyramid pyramid = rm.getGridPyramid();
+        GridPyramid.Level pyramidLevel = pyramid.getLevel(Math.min(level, pyramid.getLevelCount() - 1));
+        grid = pyramidLevel.getGridSpec();
+
+        colorOverlay = new ColorOverlay(rm, pyramidLevel,
+                GeometryManager.colorMapOf(GlobeAnomaliesRepresentation.BY_COLOR));
+        histogramOverlay = new HistogramOverlay(rm, pyramidLevel,
+                new PhongMaterial(Color.RED), new PhongMaterial(Color.BLUE));
+        year = rm.getMinYear();
+    }
+
+    private int nextYear() {
+        year = year < rm.getMaxYear() ? year + 1 : rm.getMinYear();
+        return year;
+    }
+
+    @Benchmark
+    public byte[] paletteIndexes() {
+        return colorOverlay.computePaletteIndexes(nextYear(), 0);
+    }
+
+    @Benchmark
+    public byte[] interpolatedPaletteIndexes() {
+        return colorOverlay.computePaletteIndexes(nextYear(), 0.5f);
+    }
+
+    @Benchmark
+    public float[] barHeights() {
+        return histogramOverlay.computeHeights(nextYear(), 0);
+    }
+
+    /**
+     * The points of the quads' lattice, as built by ColorOverlay.
+     */
+    @Benchmark
+    public float[] meshPoints() {
+        return ColorOverlay.computePoints(grid);
+    }
+}
@@ -0,0 +1,232 @@
+package application;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Point3D;
+import javafx.scene.AmbientLight;
+import javafx.scene.Group;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.SceneAntialiasing;
+import javafx.scene.SubScene;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Translate;
+import javafx.stage.Stage;
+import javax.imageio.ImageIO;
+import model.AnomalyStore;
+import model.GlobeAnomaliesRepresentation;
+import model.ResourceManager;
+import util.AnomalyOverlay;
+import util.GeometryManager;
+import util.TrendOverlay;
+
+/**
+ * Exports the animation of the globe as a sequence of numbered PNG images,
+ * one per year, without displaying any window.
+ *
+ * The globe is built offscreen and each year is drawn then snapshotted on
+ * the FX thread, while the previous images are encoded by a pool of worker
+ * threads. The camera looks at the globe as the application's one, turned
+ * by the given angles.
+ *
+ * Usage : java application.FrameExporter [--from=1880] [--to=2020]
+ * [--width=1280] [--height=720] [--mode=color|histogram|trend]
+ * [--angleX=0] [--angleY=0] [--distance=5] [--level=0] [--out=frames]
+ *
+ * @author adepreis
+ */
+public class FrameExporter extends Application {
+    private static final String USAGE = "Usage : java application.FrameExporter [--from=1880] [--to=2020]"
+            + " [--width=1280] [--height=720] [--mode=color|histogram|trend]"
+            + " [--angleX=0] [--angleY=0] [--distance=5] [--level=0] [--out=frames]";
+
+    // same camera as the application's one (see CameraManager)
+    private static final double CAMERA_NEAR_CLIP = 0.1;
+    private static final double CAMERA_FAR_CLIP = 10000.0;
+
+    // images waiting for their encoding, per worker
+    private static final int FRAMES_PER_WORKER = 2;
+
+    @Override
+    public void start(Stage primaryStage) {
+        try {
+            export(getParameters().getNamed());
+            Platform.exit();
+        } catch (IllegalArgumentException | IOException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Exports the years of the collection (FX thread).
+     *
+     * @param options the options of the command line, by name.
+     * @throws IOException if an image can't be written.
+     */
+    private void export(Map<String, String> options) throws IOException {
+        ResourceManager rm = new ResourceManager();
+        if (getClass().getResource("/resources/tempanomaly_4x4grid.bin") != null) {
+            rm.readAnomalyFile("/resources/tempanomaly_4x4grid.bin");
+        } else {
+            rm.readTemperatureFile("/resources/tempanomaly_4x4grid.csv", true);
+        }
+
+        final int from = intOption(options, "from", rm.getMinYear());
+        final int to = intOption(options, "to", rm.getMaxYear());
+        final int width = intOption(options, "width", 1280);
+        final int height = intOption(options, "height", 720);
+        final GlobeAnomaliesRepresentation displayType = modeOption(options.getOrDefault("mode", "color"));
+        final Path out = Paths.get(options.getOrDefault("out", "frames"));
+
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Taille d'image invalide : " + width + "x" + height);
+        }
+        Files.createDirectories(out);
+
+        // Same scene as the application, without the controls
+        Group anomalyGroup = new Group();
+        Group root3D = new Group(GeometryManager.load("/resources/earth/earth.obj"));
+
+        AmbientLight ambientLight = new AmbientLight(Color.WHITE);
+        ambientLight.getScope().add(root3D);
+        root3D.getChildren().addAll(ambientLight, anomalyGroup);
+
+        PerspectiveCamera camera = new PerspectiveCamera(true);
+        camera.setNearClip(CAMERA_NEAR_CLIP);
+        camera.setFarClip(CAMERA_FAR_CLIP);
+        camera.getTransforms().addAll(
+                new Rotate(doubleOption(options, "angleY", 0.0), Rotate.Y_AXIS),
+                new Rotate(doubleOption(options, "angleX", 0.0), Rotate.X_AXIS),
+                new Translate(0, 0, -doubleOption(options, "distance", 5.0)));
+        root3D.getChildren().add(camera);
+
+        SubScene subScene = new SubScene(root3D, width, height, true, SceneAntialiasing.BALANCED);
+        subScene.setCamera(camera);
+        subScene.setFill(Color.GREY);
+
+        AnomalyOverlay<?> overlay = GeometryManager.overlayOf(anomalyGroup, rm, displayType, intOption(options, "level", 0));
+        GeometryManager.attachOverlay(anomalyGroup, overlay);
+        if (overlay instanceof TrendOverlay) {
+            ((TrendOverlay) overlay).setPeriodStart(from);
+        }
+        // Only the cells facing the camera are written
+        overlay.setViewpoint(camera.localToParent(Point3D.ZERO));
+
+        final int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ExecutorService encoders = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "frame-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore backlog = new Semaphore(workers * FRAMES_PER_WORKER);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+
+        WritableImage snapshot = new WritableImage(width, height);
+        AnomalyStore store = rm.getAnomalyStore();
+        int frame = 0;
+        long start = System.nanoTime();
+
+        for (int yearIndex = 0; yearIndex < store.getYearCount() && failure.get() == null; yearIndex++) {
+            int year = store.getYear(yearIndex);
+            if (year < from || year > to) {
+                continue;
+            }
+
+            // The next years are computed in background meanwhile
+            overlay.show(year);
+            subScene.snapshot(null, snapshot);
+
+            // The snapshot is reused : its pixels are copied for the encoder
+            backlog.acquireUninterruptibly();
+            int[] pixels = new int[width * height];
+            snapshot.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+
+            Path file = out.resolve(String.format("frame_%04d.png", frame++));
+            encoders.execute(() -> {
+                try {
+                    writePng(pixels, width, height, file);
+                } catch (IOException ex) {
+                    failure.compareAndSet(null, ex);
+                } finally {
+                    backlog.release();
+                }
+            });
+        }
+
+        encoders.shutdown();
+        try {
+            encoders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("[INFO] %d frames exported into %s in %.2f s (%.1f fps).",
+                                         frame, out, seconds, frame / seconds));
+    }
+
+    private static void writePng(int[] pixels, int width, int height, Path file) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+
+        if (!ImageIO.write(image, "png", file.toFile())) {
+            throw new IOException("Impossible d'écrire l'image " + file + ".");
+        }
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valeur invalide pour --" + name + " : " + value);
+        }
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        String value = options.get(name);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valeur invalide pour --" + name + " : " + value);
+        }
+    }
+
+    private static GlobeAnomaliesRepresentation modeOption(String mode) {
+        switch (mode) {
+            case "color":
+                return GlobeAnomaliesRepresentation.BY_COLOR;
+            case "histogram":
+                return GlobeAnomaliesRepresentation.BY_HISTOGRAM;
+            case "trend":
+                return GlobeAnomaliesRepresentation.BY_TREND;
+            default:
+                throw new IllegalArgumentException("Mode d'affichage inconnu : " + mode);
+        }
+    }
+
+    /**
+     * @param args the options, as --name=value.
+     */
+    public static void main(String[] args) {
+        launch(args);
+    }
+}
@@ -1,16 +1,22 @@
 package controller;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
-import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.geometry.Point3D;
 import javafx.scene.AmbientLight;
 import javafx.scene.Group;
 import javafx.scene.PerspectiveCamera;
@@ -21,22 +27,35 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.TransferMode;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.MeshView;
-import javafx.util.Pair;
+import javafx.util.Duration;
 import model.AnimationModel;
 import model.GeoCoord;
 import model.GlobeAnomaliesRepresentation;
+import model.GridSpec;
+import model.ModelMetrics;
 import model.ResourceManager;
 import model.YearModel;
+import util.AnomalyOverlay;
 import util.CameraManager;
 import util.ErrorManager;
+import util.FrameProbe;
 import util.GeometryManager;
+import util.LevelOfDetail;
+import util.PlaybackScheduler;
+import util.RenderMetrics;
+import util.RenderPipeline;
 import view.AnomalyChart;
+import view.HovmollerView;
+import view.MetricsHud;
 import view.ModeSwitcher;
+import view.StatisticsPanel;
 import view.Scale;
 import view.YearLabel;
 
@@ -46,18 +65,38 @@ import view.YearLabel;
  * @author Antonin
  */
 public class ApplicationController implements Initializable {
+    // Under this distance (in pixels), a 'Ctrl+Drag' is a 'Ctrl+Click'
+    private static final double DRAG_THRESHOLD = 5.0;
+    
+    private static final Duration ANOMALIES_FADE_IN = Duration.millis(600);
+    
+    // loads the earth's model and the data at startup
+    private static final ExecutorService STARTUP_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "startup-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
     
     private AnimationModel animation;
     private ResourceManager rm;
     
     private ModeSwitcher switcher;
+    private Spinner<Integer> trendStart;
     private GlobeAnomaliesRepresentation displayType;
     
     private YearLabel yearLabel;
     private Scale scale;
+    private HovmollerView hovmoller;
+    private MetricsHud metricsHud;
     
     private YearModel year;
     
+    private RenderPipeline renderPipeline;
+    private CameraManager cameraManager;
+    private LevelOfDetail levelOfDetail;
+    private PlaybackScheduler playback;
+    private FrameProbe frameProbe;
+    
     @FXML
     private BorderPane mainPane;
     
@@ -95,6 +134,12 @@ public class ApplicationController implements Initializable {
     @FXML
     private VBox rightPanel;
     private AnomalyChart anomaliesChart;
+    private StatisticsPanel statisticsPanel;
+    
+    // where a 'Ctrl+Drag' started, on the screen and on the globe
+    private double pressX;
+    private double pressY;
+    private Point3D pressPoint;
     
     @FXML
     private ImageView searchIcon;
@@ -108,31 +153,33 @@ public class ApplicationController implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle rb) {
+        // Published before the loading, to measure it
+        RenderMetrics.register();
+        ModelMetrics.register();
+        
+        final long start = System.nanoTime();
+        
         //Create a graph scene root for the 3D content
         root3D = new Group();
         
+        // attached to the scene with its first frame
         anomalyGroup = new Group();
-
-        root3D.getChildren().add(GeometryManager.load("/resources/earth/earth.obj"));
-        
         
         rm = new ResourceManager();
-        rm.readTemperatureFile("/resources/tempanomaly_4x4grid.csv");
-        System.out.println(rm.toString());
-        
         
-        year = new YearModel(rm.getMinYear());
-        
-        // Define display mode and display anomalies
-        displayType = GlobeAnomaliesRepresentation.BY_COLOR;
-        GeometryManager.drawAnomalies(anomalyGroup, rm, year.getCurrentYear(), displayType);
+        // The earth's model and the data (then the first frame) are loaded
+        // concurrently, while the window is displayed
+        CompletableFuture<Group> earth = CompletableFuture.supplyAsync(
+                () -> GeometryManager.load("/resources/earth/earth.obj"), STARTUP_EXECUTOR);
+        CompletableFuture<FirstFrame<?>> firstFrame = CompletableFuture.supplyAsync(
+                this::loadFirstFrame, STARTUP_EXECUTOR);
         
 
         // Add ambient light
         AmbientLight ambientLight = new AmbientLight(Color.WHITE);
         ambientLight.getScope().add(root3D);
         
-        root3D.getChildren().addAll(ambientLight, anomalyGroup);
+        root3D.getChildren().add(ambientLight);
         
         
         // Add a camera group
@@ -145,6 +192,81 @@ public class ApplicationController implements Initializable {
 
         pane3D.getChildren().add(subScene);
         
+        // Displayed until the anomalies are ready
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.layoutXProperty().bind(pane3D.widthProperty().subtract(progress.widthProperty()).divide(2));
+        progress.layoutYProperty().bind(pane3D.heightProperty().subtract(progress.heightProperty()).divide(2));
+        pane3D.getChildren().add(progress);
+        
+        // The controls need the data
+        mainPane.getBottom().setDisable(true);
+        
+        // Build camera manager : the globe can be turned while loading
+        cameraManager = new CameraManager(camera, pane3D, root3D);
+        
+        
+        // below the anomalies
+        earth.thenAcceptAsync(globe -> root3D.getChildren().add(0, globe), Platform::runLater)
+             .exceptionally(ex -> failStartup(ex, progress));
+        
+        firstFrame.thenAcceptAsync(frame -> {
+            pane3D.getChildren().remove(progress);
+            initWithData(camera, subScene, frame);
+            mainPane.getBottom().setDisable(false);
+            
+            System.out.println(String.format("[INFO] Anomalies displayed %.0f ms after the startup.",
+                                             (System.nanoTime() - start) / 1e6));
+        }, Platform::runLater).exceptionally(ex -> failStartup(ex, progress));
+    }
+    
+    /**
+     * Stops the loading display and reports a startup failure (any thread).
+     */
+    private Void failStartup(Throwable ex, ProgressIndicator progress) {
+        Platform.runLater(() -> {
+            pane3D.getChildren().remove(progress);
+            ErrorManager.displayInitWarning(ex);
+        });
+        return null;
+    }
+    
+    /**
+     * Loads the data and computes the first frame (startup thread).
+     */
+    private FirstFrame<?> loadFirstFrame() {
+        // The binary file (see AnomalyFileConverter) is preferred : it is mapped instead of parsed
+        if (getClass().getResource("/resources/tempanomaly_4x4grid.bin") != null) {
+            rm.readAnomalyFile("/resources/tempanomaly_4x4grid.bin");
+        } else {
+            rm.readTemperatureFile("/resources/tempanomaly_4x4grid.csv", true);
+        }
+        System.out.println(rm.toString());
+        
+        // the diagram's means are computed here rather than on the FX thread
+        rm.getHovmollerMeans();
+        
+        // The group isn't displayed yet : its overlay can be built here
+        return new FirstFrame<>(GeometryManager.overlayOf(anomalyGroup, rm, GlobeAnomaliesRepresentation.BY_COLOR, 0),
+                                rm.getMinYear());
+    }
+    
+    /**
+     * Builds the controls and displays the first frame (FX thread).
+     */
+    private void initWithData(PerspectiveCamera camera, SubScene subScene, FirstFrame<?> firstFrame) {
+        year = new YearModel(rm.getMinYear());
+        
+        // Define display mode and display anomalies
+        displayType = GlobeAnomaliesRepresentation.BY_COLOR;
+        GeometryManager.attachOverlay(anomalyGroup, firstFrame.overlay);
+        firstFrame.apply();
+        
+        // Year and mode changes are computed out of the FX thread
+        renderPipeline = new RenderPipeline(anomalyGroup, rm);
+        
+        root3D.getChildren().add(anomalyGroup);
+        GeometryManager.fadeIn(anomalyGroup, ANOMALIES_FADE_IN);
+        
         
         // need to be done after subScene adding to be displayed above
         pane3D.getChildren().add(initAbove3D());
@@ -154,8 +276,25 @@ public class ApplicationController implements Initializable {
         init2D();
         initListeners();
         
-        // Build camera manager
-        new CameraManager(camera, pane3D, root3D);
+        // The displayed resolution follows the zoom
+        levelOfDetail = new LevelOfDetail(cameraManager, camera.getFieldOfView(), subScene.heightProperty());
+        levelOfDetail.levelProperty().addListener((obs, oldLevel, newLevel) -> {
+            renderPipeline.setLevel(newLevel.intValue());
+            renderPipeline.request(yearsSlider.getValue(), displayType);
+        });
+        levelOfDetail.setLevels(rm.getGridPyramid());
+        
+        // Only the cells facing the camera are updated
+        cameraManager.addViewListener(obs -> renderPipeline.setViewpoint(cameraManager.getPosition()));
+        renderPipeline.setViewpoint(cameraManager.getPosition());
+        
+        // Frame intervals and scene size, displayed by the HUD (F3)
+        frameProbe = new FrameProbe(anomalyGroup, root3D, () -> {
+            if (metricsHud.isVisible()) {
+                metricsHud.refresh();
+            }
+        });
+        frameProbe.start();
     }
 
     
@@ -163,11 +302,18 @@ public class ApplicationController implements Initializable {
         // Controls above 3D scene
         switcher = new ModeSwitcher(70.0);
         
+        // first year of the trends' period, the last one being the displayed year
+        trendStart = new Spinner<>(rm.getMinYear(), rm.getMaxYear(), rm.getMinYear());
+        trendStart.setPrefWidth(90.0);
+        trendStart.setVisible(false);
+        
         yearLabel = new YearLabel(rm.getMinYear());
         
         // initialize a scale adapted to the Color display mode :
-        scale = new Scale(20, 250, Color.RED, Color.ORANGE, Color.YELLOW,
-                                Color.YELLOW.invert(), Color.ORANGE.invert(), Color.RED.invert());
+        scale = new Scale(20, 250, GeometryManager.colorMapOf(GlobeAnomaliesRepresentation.BY_COLOR));
+        
+        // latitudes (or longitudes) x years diagram, colored as the globe
+        hovmoller = new HovmollerView(rm, GeometryManager.colorMapOf(GlobeAnomaliesRepresentation.BY_COLOR), 250, 120);
         
         yearLabel.layoutXProperty().bind(pane3D.widthProperty().subtract(yearLabel.widthProperty()).divide(2));
         yearLabel.layoutYProperty().bind(pane3D.heightProperty().subtract(yearLabel.heightProperty()));
@@ -175,21 +321,42 @@ public class ApplicationController implements Initializable {
         switcher.layoutXProperty().bind(pane3D.widthProperty().multiply(0.03f));
         switcher.layoutYProperty().bind(pane3D.heightProperty().multiply(0.03f));
         
+        trendStart.layoutXProperty().bind(switcher.layoutXProperty());
+        trendStart.layoutYProperty().bind(switcher.layoutYProperty().add(switcher.heightProperty()).add(5));
+        
         scale.layoutXProperty().bind(pane3D.widthProperty().subtract(scale.widthProperty().add(5)));
         scale.layoutYProperty().bind(pane3D.heightProperty().divide(2).subtract(scale.heightProperty().divide(2)));
         
-        return new Group(yearLabel, switcher, scale);
+        hovmoller.layoutXProperty().bind(switcher.layoutXProperty());
+        hovmoller.layoutYProperty().bind(pane3D.heightProperty().subtract(hovmoller.getFitHeight() + 5));
+        
+        // rendering metrics, shown with F3
+        metricsHud = new MetricsHud();
+        metricsHud.layoutXProperty().bind(switcher.layoutXProperty());
+        metricsHud.layoutYProperty().bind(trendStart.layoutYProperty().add(trendStart.heightProperty()).add(5));
+        
+        return new Group(yearLabel, switcher, trendStart, scale, hovmoller, metricsHud);
     }
     
     private void init2D() {
         // Add tooltips on the 3D area and the magnifying glass
-        Tooltip tooltip3D = new Tooltip("Ctrl + Clic pour obtenir des informations sur une zone.");
+        Tooltip tooltip3D = new Tooltip("Ctrl + Clic pour obtenir des informations sur une zone,"
+                + "\nCtrl + Maj + Clic pour la comparer aux précédentes,"
+                + "\nF3 pour afficher les mesures de performance,"
+                + "\ndéposez un fichier .csv pour ajouter ses nouvelles années.");
         Tooltip.install(pane3D, tooltip3D);
         
         Tooltip tooltipSearch = new Tooltip("Cliquez sur la loupe ou tapez la touche"
                 + "\n'Enter' pour lancer la recherche.");
         Tooltip.install(searchIcon, tooltipSearch);
         
+        trendStart.setTooltip(new Tooltip("Début de la période de la tendance (°C/décennie),"
+                + "\njusqu'à l'année affichée."));
+        
+        Tooltip.install(hovmoller, new Tooltip("Anomalies moyennes par latitude (ou longitude) et par année."
+                + "\nMolette : zoom, glisser : déplacement,"
+                + "\ndouble-clic : latitudes / longitudes."));
+        
         
         // Restrict input length "client side" :
         Pattern pattern = Pattern.compile(".{0,4}");
@@ -206,17 +373,22 @@ public class ApplicationController implements Initializable {
                 if (switcher.hasSelectedToggle()) {
                     if (switcher.isColorModeSelected()) {
                         displayType = GlobeAnomaliesRepresentation.BY_COLOR;
-                        scale.setGradient(Color.RED, Color.ORANGE, Color.YELLOW,
-                                Color.YELLOW.invert(), Color.ORANGE.invert(), Color.RED.invert());
                     }
                     else if (switcher.isBarModeSelected()) {
                         displayType = GlobeAnomaliesRepresentation.BY_HISTOGRAM;
-                        scale.setGradient(Color.RED, Color.BLUE);
                     }
+                    else if (switcher.isTrendModeSelected()) {
+                        displayType = GlobeAnomaliesRepresentation.BY_TREND;
+                    }
+                    trendStart.setVisible(displayType == GlobeAnomaliesRepresentation.BY_TREND);
+                    
+                    // the legend reads the same color map as the globe
+                    scale.setColorMap(GeometryManager.colorMapOf(displayType));
+                    hovmoller.setColorMap(GeometryManager.colorMapOf(displayType));
                     
                     switcher.toggleDisabledButton();
                     
-                    GeometryManager.drawAnomalies(anomalyGroup, rm, year.getCurrentYear(), displayType);
+                    renderPipeline.request(yearsSlider.getValue(), displayType);
                 }
             }
         });
@@ -224,6 +396,10 @@ public class ApplicationController implements Initializable {
         anomaliesChart = new AnomalyChart(rm);
         rightPanel.getChildren().add(anomaliesChart);
         
+        // Global and zonal means, next to the zone's anomalies
+        statisticsPanel = new StatisticsPanel(rm);
+        rightPanel.getChildren().add(statisticsPanel);
+        
         hideRightPanel();
     }
 
@@ -259,10 +435,14 @@ public class ApplicationController implements Initializable {
         });
 
         
-        // Bind year label w/ slider
+        // Bind slider bounds w/ the years of the collection (the last one grows on append)
+        yearsSlider.setMin(rm.getMinYear());
+        yearsSlider.maxProperty().bind(rm.maxYearProperty());
+        
+        // Bind year label w/ slider (the playback goes between two years)
         yearLabel.textProperty().bind(
-            Bindings.format(
-                "%.0f",
+            Bindings.createStringBinding(
+                () -> Integer.toString((int) Math.floor(yearsSlider.getValue())),
                 yearsSlider.valueProperty()
             ));
         
@@ -271,7 +451,20 @@ public class ApplicationController implements Initializable {
             @Override
             public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
                 year.setCurrentYear(newValue.intValue());
-                GeometryManager.drawAnomalies(anomalyGroup, rm, year.getCurrentYear(), displayType);
+                statisticsPanel.updateYear(year.getCurrentYear());
+                renderPipeline.request(newValue.doubleValue(), displayType);
+            }
+        });
+        
+        // The trends' period starts at the chosen year (the last one grows on append)
+        ((SpinnerValueFactory.IntegerSpinnerValueFactory) trendStart.getValueFactory())
+                .maxProperty().bind(rm.maxYearProperty());
+        trendStart.valueProperty().addListener((obs, oldStart, newStart) -> {
+            renderPipeline.setTrendStart(newStart);
+            if (displayType == GlobeAnomaliesRepresentation.BY_TREND) {
+                renderPipeline.request(yearsSlider.getValue(), displayType);
+                // the diagram shows the trend's period
+                hovmoller.setYearRange(newStart, year.getCurrentYear());
             }
         });
         
@@ -296,37 +489,55 @@ public class ApplicationController implements Initializable {
         });
         
         
+        // Moves the slider through the years, stopping on positions between two years
+        playback = new PlaybackScheduler(animation, yearsSlider.valueProperty(), yearsSlider.maxProperty(), () -> {
+            animation.setPlaying(false);
+            playPause.setImage(new Image("/resources/play.png", 25, 25, true, true));
+        });
+        
         playPause.setOnMouseClicked(event -> {
             playPause.setImage(new Image("/resources/pause.png", 25, 25, true, true));
             
             // Invert isPlaying value
             animation.togglePlaying();
             
-            final long startTime = System.nanoTime();
-            // Handles animation components (slider and buttons)
-            new AnimationTimer() {
-                private long nextIteration = startTime/100000 + (1000 * (6 - animation.getSpeed()));
-                
-                @Override
-                public void handle(long now) {
-                    if (yearsSlider.getValue() == yearsSlider.getMax()
-                        || !animation.isPlaying()) {
-                        stop();
-                        playPause.setImage(new Image("/resources/play.png", 25, 25, true, true));
-                        return;
-                    }
-                    
-                    // Move forward of one "frame" and compute the following timestamp
-                    if (nextIteration < now/100000) {
-                        yearsSlider.increment();
-                        nextIteration = now/100000 + (1000 * (6- animation.getSpeed()));
-                    }
-                }
-            }.start();
-            
+            if (animation.isPlaying()) {
+                playback.start();
+            }
+        });
+        
+        // Show or hide the metrics
+        pane3D.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == KeyCode.F3) {
+                metricsHud.setVisible(!metricsHud.isVisible());
+                metricsHud.refresh();
+            }
+        });
+        
+        // A .csv file dropped on the globe appends its new years
+        pane3D.setOnDragOver(event -> {
+            if (event.getDragboard().hasFiles()) {
+                event.acceptTransferModes(TransferMode.COPY);
+            }
+            event.consume();
+        });
+        pane3D.setOnDragDropped(event -> {
+            for (File file : event.getDragboard().getFiles()) {
+                appendTemperatureFile(file);
+            }
+            event.setDropCompleted(true);
+            event.consume();
         });
         
-        // Handle 'Ctrl+Click' on globe to fill the right panel
+        // Remember where a 'Ctrl+Drag' starts (the camera manager handles the other presses)
+        pane3D.addEventHandler(MouseEvent.MOUSE_PRESSED, event -> {
+            pressX = event.getSceneX();
+            pressY = event.getSceneY();
+            pressPoint = event.getPickResult().getIntersectedNode() instanceof MeshView
+                    ? event.getPickResult().getIntersectedPoint() : null;
+        });
+        
+        // Handle 'Ctrl+Click' (or 'Ctrl+Drag' for a zone) on globe to fill the right panel
         pane3D.setOnMouseReleased(event -> {
             
             if (event.isControlDown()) {
@@ -339,18 +550,35 @@ public class ApplicationController implements Initializable {
                     }
                     
                     GeometryManager.displayPoint(root3D, event.getPickResult().getIntersectedPoint());
+                    
+                    Point3D point = event.getPickResult().getIntersectedPoint();
+                    
+                    if (pressPoint != null && Math.hypot(event.getSceneX() - pressX,
+                                                         event.getSceneY() - pressY) > DRAG_THRESHOLD) {
+                        displayZone(pressPoint, point);
+                        return;
+                    }
                 
-                    // Compute click's geographical position and update right panel
-                    Pair<Integer, Integer> latLon = GeoCoord.coord3dToGeoCoord(event.getPickResult().getIntersectedPoint());
+                    // Compute click's geographical position and its grid cell, then update right panel
+                    GridSpec grid = rm.getGridSpec();
+                    int cell = grid.cellContaining(point);
                     
-                    latitudeLabel.setText(GeoCoord.latToString(latLon.getKey()));
-                    longitudeLabel.setText(GeoCoord.lonToString(latLon.getValue()));
+                    double lat = cell >= 0 ? grid.getCellLat(cell) : GeoCoord.pointLat(point);
+                    double lon = cell >= 0 ? grid.getCellLon(cell) : GeoCoord.pointLon(point);
+                    latitudeLabel.setText(GeoCoord.latToString(lat));
+                    longitudeLabel.setText(GeoCoord.lonToString(lon));
                     
-                    // TO FIX : if lat value is negativized, the graph seems more accurate !
-                    float[] dataEvolution = rm.getAllYearsFromCoord(latLon.getKey(), latLon.getValue());
+                    float[] dataEvolution = rm.getAllYearsFromCoord((float) lat, (float) lon);
                     
-                    // Hydrates the graphic
-                    anomaliesChart.updateData(dataEvolution);
+                    // Hydrates the graphic ('Ctrl+Shift+Click' adds a line to the displayed ones)
+                    String name = GeoCoord.latToString(lat) + " " + GeoCoord.lonToString(lon);
+                    if (event.isShiftDown()) {
+                        anomaliesChart.addData(name, dataEvolution);
+                    } else {
+                        anomaliesChart.updateData(name, dataEvolution);
+                    }
+                    statisticsPanel.updateData(lat);
+                    statisticsPanel.updateYear(year.getCurrentYear());
                 }
             } else {
                 hideRightPanel();
@@ -359,8 +587,77 @@ public class ApplicationController implements Initializable {
         });
     }
 
+    /**
+     * Fills the right panel with the mean anomalies of the lat/lon box
+     * between two points of the globe.
+     * 
+     * @param from the point where the drag started.
+     * @param to the point where the drag ended.
+     */
+    private void displayZone(Point3D from, Point3D to) {
+        float latMin = (float) Math.min(GeoCoord.pointLat(from), GeoCoord.pointLat(to));
+        float latMax = (float) Math.max(GeoCoord.pointLat(from), GeoCoord.pointLat(to));
+        
+        // The box goes the shortest way around, maybe across the antimeridian
+        float lonMin = (float) Math.min(GeoCoord.pointLon(from), GeoCoord.pointLon(to));
+        float lonMax = (float) Math.max(GeoCoord.pointLon(from), GeoCoord.pointLon(to));
+        if (lonMax - lonMin > 180) {
+            float lon = lonMin;
+            lonMin = lonMax;
+            lonMax = lon;
+        }
+        
+        latitudeLabel.setText(GeoCoord.latToString(latMin) + " - " + GeoCoord.latToString(latMax));
+        longitudeLabel.setText(GeoCoord.lonToString(lonMin) + " - " + GeoCoord.lonToString(lonMax));
+        
+        anomaliesChart.updateData(latitudeLabel.getText() + " " + longitudeLabel.getText(),
+                                  rm.getRegionSeries(latMin, latMax, lonMin, lonMax));
+        statisticsPanel.updateData((latMin + latMax) / 2);
+        statisticsPanel.updateYear(year.getCurrentYear());
+    }
+
+    /**
+     * Appends the new years of a .csv file to the displayed collection,
+     * without reloading it. The slider bounds follow the new last year.
+     * 
+     * @param file the .csv file, e.g. dropped on the globe.
+     */
+    private void appendTemperatureFile(File file) {
+        try {
+            if (rm.appendTemperatureFile(file) > 0) {
+                // The min/max anomalies may have changed : the current year is computed again
+                renderPipeline.invalidate();
+                renderPipeline.request(yearsSlider.getValue(), displayType);
+                // Only the new years are drawn, unless the colors have changed
+                hovmoller.refresh();
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            ErrorManager.displayAppendWarning(file.getPath());
+        }
+    }
+
     private void hideRightPanel() {
         mainPane.setRight(null);    // hide right panel
     }
+    
+    /**
+     * The first frame of the anomalies, computed with the data.
+     */
+    private static final class FirstFrame<T> {
+        final AnomalyOverlay<T> overlay;
+        final int year;
+        final T frame;
+
+        FirstFrame(AnomalyOverlay<T> overlay, int year) {
+            this.overlay = overlay;
+            this.year = year;
+            this.frame = overlay.frameOf(year);
+        }
 
+        void apply() {
+            overlay.applyFrame(frame);
+            overlay.prefetch(year);
+        }
+    }
 }
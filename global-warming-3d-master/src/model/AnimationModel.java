@@ -49,6 +49,17 @@ public class AnimationModel {
         return speed;
     }
 
+    /**
+     * Returns the playback rate of the current speed : from 2 years per
+     * second (x1) to 10 years per second (x5), as the former one year per
+     * (6 - speed) tenths of second.
+     *
+     * @return the number of years played per second.
+     */
+    public double getYearsPerSecond() {
+        return 10.0 / (MAX_SPEED + 1 - getSpeed());
+    }
+
     /**
      * Get the value of playing
      *
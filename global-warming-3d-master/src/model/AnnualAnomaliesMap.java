@@ -1,12 +0,0 @@
-package model;
-
-import java.util.LinkedHashMap;
-
-/**
- * AnnualAnomaliesMap class associates a value (a temperature anomaly) with a year.
- *
- * @author adepreis
- */
-class AnnualAnomaliesMap extends LinkedHashMap<Integer, Float> {
-    
-}
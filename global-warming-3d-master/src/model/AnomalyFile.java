@@ -0,0 +1,326 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AnomalyFile class reads and writes the compact binary container of an
+ * anomaly grid.
+ *
+ * Layout (little endian) :
+ * - header : magic, version, cell and year counts, grid spec (origin, step
+ *   and extent), min/max anomalies, year axis, cells' coordinates and the
+ *   NA mask (a bit set of the cells without any known anomaly),
+ * - the cell-major values, aligned on DATA_ALIGNMENT bytes,
+ * - the year-major values.
+ *
+ * Mapped files are paged on demand, each layout being limited to
+ * Integer.MAX_VALUE bytes by the MappedByteBuffer API.
+ *
+ * The version 1 stored integer coordinates ; it is still read.
+ *
+ * @author adepreis
+ */
+public class AnomalyFile {
+    private static final int MAGIC = 0x4E414157;     // "WAAN" in little endian
+    private static final int VERSION = 2;
+    private static final int FIXED_HEADER_SIZE = 4 * 12;
+    private static final int DATA_ALIGNMENT = 64;
+
+    private final AnomalyStore store;
+    private final float minAnomaly;
+    private final float maxAnomaly;
+
+    private AnomalyFile(AnomalyStore store, float minAnomaly, float maxAnomaly) {
+        this.store = store;
+        this.minAnomaly = minAnomaly;
+        this.maxAnomaly = maxAnomaly;
+    }
+
+    public AnomalyStore getStore() { return store; }
+
+    public float getMinAnomaly() { return minAnomaly; }
+
+    public float getMaxAnomaly() { return maxAnomaly; }
+
+    /**
+     * Maps a binary anomaly file : only the header is read, the values are
+     * paged on demand by the operating system.
+     *
+     * @param path the path of the binary file.
+     * @return the opened AnomalyFile.
+     * @throws IOException if the file can't be read or isn't well formed.
+     */
+    public static AnomalyFile map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer fixed = readFully(channel, 0, FIXED_HEADER_SIZE);
+            Header header = Header.readFixed(fixed);
+
+            ByteBuffer variable = readFully(channel, FIXED_HEADER_SIZE,
+                    header.dataOffset() - FIXED_HEADER_SIZE);
+            header.readVariable(variable);
+
+            long layoutSize = header.layoutSize();
+            if (layoutSize < 0 || layoutSize > Integer.MAX_VALUE) {
+                throw new IOException("Anomaly layout of " + layoutSize + " bytes can't be mapped.");
+            }
+
+            // The mapping stays valid once the channel is closed
+            FloatBuffer cellMajor = channel.map(FileChannel.MapMode.READ_ONLY,
+                    header.dataOffset(), layoutSize).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            FloatBuffer yearMajor = channel.map(FileChannel.MapMode.READ_ONLY,
+                    header.dataOffset() + layoutSize, layoutSize).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+
+            return header.toFile(cellMajor, yearMajor);
+        }
+    }
+
+    /**
+     * Reads a whole binary anomaly stream on the heap. Used when the file
+     * can't be mapped (e.g. a resource packed in a .jar).
+     *
+     * @param is the stream of the binary file.
+     * @return the opened AnomalyFile.
+     * @throws IOException if the stream can't be read or isn't well formed.
+     */
+    public static AnomalyFile read(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1 << 16];
+        int read;
+        while ((read = is.read(chunk)) > 0) {
+            bytes.write(chunk, 0, read);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < FIXED_HEADER_SIZE) {
+            throw new IOException("Truncated anomaly file.");
+        }
+        Header header = Header.readFixed(buffer);
+        if (header.dataOffset() < FIXED_HEADER_SIZE || header.dataOffset() > buffer.capacity()) {
+            throw new IOException("Truncated anomaly file.");
+        }
+        header.readVariable(buffer);
+
+        // checked as long before any int arithmetic, as map() does
+        long layout = header.layoutSize();
+        if (layout < 0 || layout > Integer.MAX_VALUE) {
+            throw new IOException("Anomaly layout of " + layout + " bytes can't be read.");
+        }
+        if (buffer.capacity() < header.dataOffset() + 2 * layout) {
+            throw new IOException("Truncated anomaly file.");
+        }
+        int layoutSize = (int) layout;
+        int offset = (int) header.dataOffset();
+
+        FloatBuffer cellMajor = buffer.slice(offset, layoutSize).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        FloatBuffer yearMajor = buffer.slice(offset + layoutSize, layoutSize).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+
+        return header.toFile(cellMajor, yearMajor);
+    }
+
+    /**
+     * Writes a complete AnomalyStore as a binary anomaly file.
+     *
+     * @param store the store to write.
+     * @param minAnomaly the minimum anomaly of the store.
+     * @param maxAnomaly the maximum anomaly of the store.
+     * @param path the path of the binary file, replaced if it exists.
+     * @throws IOException if the file can't be written.
+     */
+    public static void write(AnomalyStore store, float minAnomaly, float maxAnomaly, Path path) throws IOException {
+        Header header = Header.of(store, minAnomaly, maxAnomaly);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer head = ByteBuffer.allocate((int) header.dataOffset()).order(ByteOrder.LITTLE_ENDIAN);
+            header.write(head);
+            head.flip();
+            writeFully(channel, head);
+
+            writeLayout(channel, store, true);
+            writeLayout(channel, store, false);
+        }
+    }
+
+    private static void writeLayout(FileChannel channel, AnomalyStore store, boolean cellMajor) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        final int outer = cellMajor ? store.getCellCount() : store.getYearCount();
+        final int inner = cellMajor ? store.getYearCount() : store.getCellCount();
+
+        for (int i = 0; i < outer; i++) {
+            for (int j = 0; j < inner; j++) {
+                if (!chunk.hasRemaining()) {
+                    chunk.flip();
+                    writeFully(channel, chunk);
+                    chunk.clear();
+                }
+                chunk.putFloat(cellMajor ? store.get(i, j) : store.get(j, i));
+            }
+        }
+        chunk.flip();
+        writeFully(channel, chunk);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, long size) throws IOException {
+        if (size < 0 || position + size > channel.size()) {
+            throw new IOException("Truncated anomaly file.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated anomaly file.");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Header of a binary anomaly file.
+     */
+    private static final class Header {
+        int cellCount;
+        int yearCount;
+        int version;
+        float latOrigin, lonOrigin, latStep, lonStep;
+        int latCount, lonCount;
+        float minAnomaly;
+        float maxAnomaly;
+
+        int[] years;
+        float[] lats;
+        float[] lons;
+        long[] naMask;
+
+        static Header of(AnomalyStore store, float minAnomaly, float maxAnomaly) {
+            Header header = new Header();
+            header.cellCount = store.getCellCount();
+            header.yearCount = store.getYearCount();
+            header.minAnomaly = minAnomaly;
+            header.maxAnomaly = maxAnomaly;
+            header.years = store.getYears();
+            header.version = VERSION;
+            header.lats = new float[header.cellCount];
+            header.lons = new float[header.cellCount];
+            for (int cell = 0; cell < header.cellCount; cell++) {
+                header.lats[cell] = store.getCellLat(cell);
+                header.lons[cell] = store.getCellLon(cell);
+            }
+            header.naMask = store.getNaMask();
+
+            GridSpec grid = store.getGridSpec();
+            header.latOrigin = (float) grid.getLatOrigin();
+            header.lonOrigin = (float) grid.getLonOrigin();
+            header.latStep = (float) grid.getLatStep();
+            header.lonStep = (float) grid.getLonStep();
+            header.latCount = grid.getLatCount();
+            header.lonCount = grid.getLonCount();
+            return header;
+        }
+
+        static Header readFixed(ByteBuffer buffer) throws IOException {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an anomaly file.");
+            }
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported anomaly file version " + version + ".");
+            }
+
+            Header header = new Header();
+            header.version = version;
+            header.cellCount = buffer.getInt();
+            header.yearCount = buffer.getInt();
+            if (version == 1) {
+                // lat/lon bounds and steps : the grid is inferred from the cells
+                buffer.position(buffer.position() + 4 * 6);
+            } else {
+                header.latOrigin = buffer.getFloat();
+                header.lonOrigin = buffer.getFloat();
+                header.latStep = buffer.getFloat();
+                header.lonStep = buffer.getFloat();
+                header.latCount = buffer.getInt();
+                header.lonCount = buffer.getInt();
+            }
+            header.minAnomaly = buffer.getFloat();
+            header.maxAnomaly = buffer.getFloat();
+
+            if (header.cellCount < 0 || header.yearCount <= 0) {
+                throw new IOException("Corrupted anomaly file header.");
+            }
+            return header;
+        }
+
+        void readVariable(ByteBuffer buffer) {
+            years = new int[yearCount];
+            buffer.asIntBuffer().get(years);
+            buffer.position(buffer.position() + 4 * yearCount);
+
+            lats = readCoordinates(buffer);
+            lons = readCoordinates(buffer);
+
+            naMask = new long[(cellCount + 63) / 64];
+            buffer.asLongBuffer().get(naMask);
+            buffer.position(buffer.position() + 8 * naMask.length);
+        }
+
+        private float[] readCoordinates(ByteBuffer buffer) {
+            float[] coordinates = new float[cellCount];
+            if (version == 1) {
+                for (int cell = 0; cell < cellCount; cell++) {
+                    coordinates[cell] = buffer.getInt();
+                }
+            } else {
+                buffer.asFloatBuffer().get(coordinates);
+                buffer.position(buffer.position() + 4 * cellCount);
+            }
+            return coordinates;
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putInt(MAGIC).putInt(VERSION)
+                  .putInt(cellCount).putInt(yearCount)
+                  .putFloat(latOrigin).putFloat(lonOrigin).putFloat(latStep).putFloat(lonStep)
+                  .putInt(latCount).putInt(lonCount)
+                  .putFloat(minAnomaly).putFloat(maxAnomaly);
+
+            for (int year : years) { buffer.putInt(year); }
+            for (float lat : lats) { buffer.putFloat(lat); }
+            for (float lon : lons) { buffer.putFloat(lon); }
+            for (long bits : naMask) { buffer.putLong(bits); }
+
+            // zero padding up to the data offset
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 0);
+            }
+        }
+
+        long layoutSize() {
+            return 4L * cellCount * yearCount;
+        }
+
+        long dataOffset() {
+            long size = FIXED_HEADER_SIZE + 4L * yearCount + 8L * cellCount + 8L * ((cellCount + 63) / 64);
+            return (size + DATA_ALIGNMENT - 1) / DATA_ALIGNMENT * DATA_ALIGNMENT;
+        }
+
+        AnomalyFile toFile(FloatBuffer cellMajor, FloatBuffer yearMajor) {
+            AnomalyStore store = new AnomalyStore(years, lats, lons, naMask, cellMajor, yearMajor);
+            return new AnomalyFile(store, minAnomaly, maxAnomaly);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package model;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * One-shot converter from a tempanomaly .csv file to the binary format read
+ * by {@link ResourceManager#readAnomalyFile(String)}.
+ *
+ * Usage : java model.AnomalyFileConverter input.csv output.bin
+ *
+ * @author adepreis
+ */
+public class AnomalyFileConverter {
+
+    /**
+     * Converts a .csv anomaly file into a binary anomaly file.
+     *
+     * @param csvPath the path of the .csv file to read.
+     * @param binPath the path of the binary file to write.
+     * @throws IOException if a file can't be read or written.
+     */
+    public static void convert(Path csvPath, Path binPath) throws IOException {
+        ResourceManager rm = new ResourceManager();
+        rm.readTemperatureData(new FileInputStream(csvPath.toFile()), csvPath.toString());
+
+        if (rm.getAnomalyStore().getYearCount() == 0) {
+            throw new IOException("No anomaly could be read from " + csvPath + ".");
+        }
+
+        AnomalyFile.write(rm.getAnomalyStore(), rm.getMinTempAnomaly(), rm.getMaxTempAnomaly(), binPath);
+    }
+
+    /**
+     * @param args the .csv input path and the binary output path.
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage : java model.AnomalyFileConverter input.csv output.bin");
+            System.exit(1);
+        }
+
+        try {
+            long start = System.nanoTime();
+            convert(Paths.get(args[0]), Paths.get(args[1]));
+            System.out.println("[INFO] " + args[0] + " converted into " + args[1]
+                    + " in " + (System.nanoTime() - start) / 1000000 + " ms.");
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * AnomalyStatistics class holds the summary statistics of each year of a
+ * store : the global mean, the zonal means (by latitude band), the min/max
+ * and the coverage.
+ *
+ * The means are weighted by the cosine of the cells' latitude, i.e. their
+ * area, "NA" anomalies being skipped. The cells are split into ranges
+ * computed on the common fork-join pool, whose partial sums are merged.
+ * Appended years are computed alone by {@link #update()}.
+ *
+ * @author adepreis
+ */
+public class AnomalyStatistics {
+    // Under this number of cells, a range is computed instead of being split
+    private static final int CELLS_PER_TASK = 2048;
+
+    // limits of the latitude bands of the zonal means
+    private static final float[] ZONE_LIMITS = {-90, -60, -30, 0, 30, 60, 90};
+
+    private final AnomalyStore store;
+    private final float[] cellWeights;
+    private final int[] cellZones;
+    private final double totalWeight;
+
+    private int yearCount;
+    private float[] globalMeans = new float[0];
+    private float[][] zonalMeans = new float[ZONE_LIMITS.length - 1][0];
+    private float[] minimums = new float[0];
+    private float[] maximums = new float[0];
+    private float[] coverages = new float[0];
+
+    private AnomalyStatistics(AnomalyStore store) {
+        this.store = store;
+
+        final int cellCount = store.getCellCount();
+        cellWeights = new float[cellCount];
+        cellZones = new int[cellCount];
+        double weight = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            float lat = store.getCellLat(cell);
+            cellWeights[cell] = (float) Math.max(0, Math.cos(Math.toRadians(lat)));
+            cellZones[cell] = zoneOf(lat);
+            weight += cellWeights[cell];
+        }
+        totalWeight = weight;
+    }
+
+    /**
+     * Computes the statistics of every year of a store.
+     *
+     * @param store a complete store.
+     * @return the statistics of the store.
+     */
+    public static AnomalyStatistics compute(AnomalyStore store) {
+        AnomalyStatistics statistics = new AnomalyStatistics(store);
+        statistics.update();
+        return statistics;
+    }
+
+    /**
+     * @param store a store.
+     * @return true if the statistics were computed for this store.
+     */
+    public boolean isBuiltFor(AnomalyStore store) {
+        return this.store == store;
+    }
+
+    /**
+     * Computes the years appended to the store since the last computation.
+     */
+    public void update() {
+        final int from = yearCount;
+        final int to = store.getYearCount();
+        if (to <= from) {
+            return;
+        }
+
+        Sums sums = ForkJoinPool.commonPool().invoke(new CellTask(0, store.getCellCount(), from, to));
+
+        globalMeans = Arrays.copyOf(globalMeans, to);
+        minimums = Arrays.copyOf(minimums, to);
+        maximums = Arrays.copyOf(maximums, to);
+        coverages = Arrays.copyOf(coverages, to);
+        for (int zone = 0; zone < zonalMeans.length; zone++) {
+            zonalMeans[zone] = Arrays.copyOf(zonalMeans[zone], to);
+        }
+
+        for (int y = from; y < to; y++) {
+            int i = y - from;
+            globalMeans[y] = mean(sums.sums[i], sums.weights[i]);
+            boolean known = sums.minimums[i] <= sums.maximums[i];
+            minimums[y] = known ? sums.minimums[i] : Float.NaN;
+            maximums[y] = known ? sums.maximums[i] : Float.NaN;
+            coverages[y] = totalWeight > 0 ? (float) (sums.weights[i] / totalWeight) : 0.f;
+
+            for (int zone = 0; zone < zonalMeans.length; zone++) {
+                zonalMeans[zone][y] = mean(sums.zoneSums[zone][i], sums.zoneWeights[zone][i]);
+            }
+        }
+        yearCount = to;
+    }
+
+    private static float mean(double sum, double weight) {
+        return weight > 0 ? (float) (sum / weight) : Float.NaN;
+    }
+
+    /**
+     * @param lat a latitude.
+     * @return the index of the latitude band containing it.
+     */
+    public static int zoneOf(double lat) {
+        for (int zone = 0; zone < ZONE_LIMITS.length - 2; zone++) {
+            if (lat < ZONE_LIMITS[zone + 1]) {
+                return zone;
+            }
+        }
+        return ZONE_LIMITS.length - 2;
+    }
+
+    public static int getZoneCount() { return ZONE_LIMITS.length - 1; }
+
+    public static float getZoneMinLat(int zone) { return ZONE_LIMITS[zone]; }
+
+    public static float getZoneMaxLat(int zone) { return ZONE_LIMITS[zone + 1]; }
+
+    /**
+     * @param zone the index of a latitude band.
+     * @return the name of the band, e.g. "Bande 30° Nord - 60° Nord".
+     */
+    public static String getZoneName(int zone) {
+        return "Bande " + GeoCoord.latToString((double) getZoneMinLat(zone))
+                + " - " + GeoCoord.latToString((double) getZoneMaxLat(zone));
+    }
+
+    public int getYearCount() { return yearCount; }
+
+    /**
+     * @param yearIndex the index of a year.
+     * @return the area-weighted mean anomaly of the year, Float.NaN if unknown.
+     */
+    public float getGlobalMean(int yearIndex) { return globalMeans[yearIndex]; }
+
+    public float getMinimum(int yearIndex) { return minimums[yearIndex]; }
+
+    public float getMaximum(int yearIndex) { return maximums[yearIndex]; }
+
+    /**
+     * @param yearIndex the index of a year.
+     * @return the fraction (in area) of the cells with a known anomaly.
+     */
+    public float getCoverage(int yearIndex) { return coverages[yearIndex]; }
+
+    /**
+     * Returns a copy of the global mean series.
+     *
+     * @return the area-weighted mean anomaly of each year.
+     */
+    public float[] getGlobalMeans() { return globalMeans.clone(); }
+
+    /**
+     * Returns a copy of the mean series of a latitude band.
+     *
+     * @param zone the index of the band.
+     * @return the area-weighted mean anomaly of the band for each year.
+     */
+    public float[] getZonalMeans(int zone) { return zonalMeans[zone].clone(); }
+
+    /**
+     * Partial sums of a range of cells, for a range of years.
+     */
+    private static final class Sums {
+        final double[] sums;
+        final double[] weights;
+        final double[][] zoneSums;
+        final double[][] zoneWeights;
+        final float[] minimums;
+        final float[] maximums;
+
+        Sums(int years) {
+            sums = new double[years];
+            weights = new double[years];
+            zoneSums = new double[ZONE_LIMITS.length - 1][years];
+            zoneWeights = new double[ZONE_LIMITS.length - 1][years];
+            minimums = new float[years];
+            maximums = new float[years];
+            Arrays.fill(minimums, Float.MAX_VALUE);
+            Arrays.fill(maximums, -Float.MAX_VALUE);
+        }
+
+        Sums merge(Sums other) {
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += other.sums[i];
+                weights[i] += other.weights[i];
+                minimums[i] = Math.min(minimums[i], other.minimums[i]);
+                maximums[i] = Math.max(maximums[i], other.maximums[i]);
+                for (int zone = 0; zone < zoneSums.length; zone++) {
+                    zoneSums[zone][i] += other.zoneSums[zone][i];
+                    zoneWeights[zone][i] += other.zoneWeights[zone][i];
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Computes the sums of a range of cells, split while it is too large.
+     */
+    private final class CellTask extends RecursiveTask<Sums> {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromCell;
+        private final int toCell;
+        private final int fromYear;
+        private final int toYear;
+
+        CellTask(int fromCell, int toCell, int fromYear, int toYear) {
+            this.fromCell = fromCell;
+            this.toCell = toCell;
+            this.fromYear = fromYear;
+            this.toYear = toYear;
+        }
+
+        @Override
+        protected Sums compute() {
+            if (toCell - fromCell > CELLS_PER_TASK) {
+                int middle = (fromCell + toCell) >>> 1;
+                CellTask left = new CellTask(fromCell, middle, fromYear, toYear);
+                CellTask right = new CellTask(middle, toCell, fromYear, toYear);
+                left.fork();
+
+                Sums sums = right.compute();
+                return left.join().merge(sums);
+            }
+
+            Sums sums = new Sums(toYear - fromYear);
+            for (int cell = fromCell; cell < toCell; cell++) {
+                if (!store.hasData(cell)) {
+                    continue;
+                }
+                final double weight = cellWeights[cell];
+                final double[] zoneSums = sums.zoneSums[cellZones[cell]];
+                final double[] zoneWeights = sums.zoneWeights[cellZones[cell]];
+
+                for (int y = fromYear; y < toYear; y++) {
+                    float value = store.get(cell, y);
+                    if (Float.isNaN(value)) {
+                        continue;
+                    }
+                    int i = y - fromYear;
+                    sums.sums[i] += value * weight;
+                    sums.weights[i] += weight;
+                    zoneSums[i] += value * weight;
+                    zoneWeights[i] += weight;
+                    sums.minimums[i] = value < sums.minimums[i] ? value : sums.minimums[i];
+                    sums.maximums[i] = value > sums.maximums[i] ? value : sums.maximums[i];
+                }
+            }
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package model;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import util.SliceKernels;
+
+/**
+ * AnomalyStore class holds every temperature anomaly of the collection in
+ * dense primitive arrays indexed by (cellIndex, yearIndex).
+ *
+ * Two layouts of the same values are kept :
+ * - a cell-major one, where the whole series of a cell is contiguous,
+ * - a year-major one, where the whole slice of a year is contiguous.
+ * "NA" anomalies are stored as Float.NaN.
+ * Both layouts are accessed through FloatBuffers, so a store can either live
+ * on the heap or be mapped from an {@link AnomalyFile}.
+ *
+ * Once complete, the cells are located on a {@link GridSpec} inferred from
+ * their coordinates, whatever its resolution.
+ *
+ * The year axis and the layouts are published together, as one immutable
+ * Layout : appended years are filled out of the readers' sight, then
+ * published in one step (see {@link YearAppend}), so a store can be read by
+ * several threads while years are appended.
+ *
+ * @author adepreis
+ */
+public class AnomalyStore {
+    private static final int INITIAL_CELL_CAPACITY = 1024;
+
+    private volatile Layout layout;
+
+    private int cellCount;
+    private float[] cellLats;
+    private float[] cellLons;
+
+    // grid of the cells, and store index of each grid cell (-1 if absent)
+    private GridSpec gridSpec;
+    private int[] gridCells;
+
+    // Values being added, before the layouts are built by complete()
+    private float[] pending;
+
+    /**
+     * The year axis and the values of the store, never modified once
+     * published (the appended years only write after the published ones).
+     */
+    private static final class Layout {
+        final int[] years;
+        final boolean contiguousYears;
+
+        // distance between two cells in the cell-major layout (>= years.length)
+        final int yearStride;
+
+        final FloatBuffer cellMajor;
+        final FloatBuffer yearMajor;
+        final long[] naMask;
+
+        Layout(int[] years, int yearStride, FloatBuffer cellMajor, FloatBuffer yearMajor, long[] naMask) {
+            this.years = years;
+            this.contiguousYears = isContiguous(years);
+            this.yearStride = yearStride;
+            this.cellMajor = cellMajor;
+            this.yearMajor = yearMajor;
+            this.naMask = naMask;
+        }
+    }
+
+    /**
+     * Constructs an empty AnomalyStore for the specified year axis.
+     *
+     * @param years an ascending array of the years stored for each cell.
+     */
+    public AnomalyStore(int[] years) {
+        this.layout = new Layout(years.clone(), years.length, FloatBuffer.allocate(0), FloatBuffer.allocate(0), new long[0]);
+
+        this.cellCount = 0;
+        this.cellLats = new float[INITIAL_CELL_CAPACITY];
+        this.cellLons = new float[INITIAL_CELL_CAPACITY];
+        this.pending = new float[INITIAL_CELL_CAPACITY * years.length];
+        this.gridSpec = GridSpec.fromCenters(new float[0], new float[0]);
+        this.gridCells = new int[0];
+    }
+
+    /**
+     * Constructs a complete AnomalyStore over existing layouts, typically
+     * mapped from a file.
+     *
+     * @param years an ascending array of the years stored for each cell.
+     * @param lats the latitude of each cell.
+     * @param lons the longitude of each cell.
+     * @param naMask a bit set of the cells which contain only "NA" anomalies.
+     * @param cellMajor the cell-major layout of the values.
+     * @param yearMajor the year-major layout of the values.
+     */
+    AnomalyStore(int[] years, float[] lats, float[] lons, long[] naMask,
+                 FloatBuffer cellMajor, FloatBuffer yearMajor) {
+        this(years);
+        this.pending = null;
+
+        this.cellCount = lats.length;
+        this.cellLats = lats;
+        this.cellLons = lons;
+        this.layout = new Layout(layout.years, layout.years.length, cellMajor, yearMajor, naMask);
+
+        locateCells();
+    }
+
+    /**
+     * Appends the whole series of a cell to the store. The values are copied,
+     * so the given array can be reused by the caller.
+     * The year-major layout is only rebuilt by {@link #complete()}.
+     *
+     * @param lat the latitude of the cell's center.
+     * @param lon the longitude of the cell's center.
+     * @param values the anomalies of the cell, one per year of the axis.
+     * @return the index of the new cell.
+     */
+    int addCell(float lat, float lon, float[] values) {
+        final int[] years = layout.years;
+        if (cellCount == cellLats.length) {
+            int capacity = cellLats.length * 2;
+            cellLats = Arrays.copyOf(cellLats, capacity);
+            cellLons = Arrays.copyOf(cellLons, capacity);
+            pending = Arrays.copyOf(pending, capacity * years.length);
+        }
+
+        int cell = cellCount++;
+        cellLats[cell] = lat;
+        cellLons[cell] = lon;
+        System.arraycopy(values, 0, pending, cell * years.length, years.length);
+
+        return cell;
+    }
+
+    /**
+     * Trims the cell-major layout, builds the year-major one and locates the
+     * cells on their grid.
+     * Must be called once all the cells have been added.
+     */
+    void complete() {
+        final int[] years = layout.years;
+        final int yearCount = years.length;
+
+        cellLats = Arrays.copyOf(cellLats, cellCount);
+        cellLons = Arrays.copyOf(cellLons, cellCount);
+        float[] byCell = Arrays.copyOf(pending, cellCount * yearCount);
+        pending = null;
+
+        float[] byYear = new float[cellCount * yearCount];
+        long[] naMask = new long[(cellCount + 63) / 64];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int from = cell * yearCount;
+            for (int y = 0; y < yearCount; y++) {
+                byYear[y * cellCount + cell] = byCell[from + y];
+            }
+            if (SliceKernels.count(byCell, from, from + yearCount) == 0) {
+                naMask[cell >> 6] |= 1L << cell;
+            }
+        }
+
+        layout = new Layout(years, yearCount, FloatBuffer.wrap(byCell), FloatBuffer.wrap(byYear), naMask);
+
+        locateCells();
+    }
+
+    private void locateCells() {
+        gridSpec = GridSpec.fromCenters(cellLats, cellLons);
+        gridCells = new int[gridSpec.getCellCount()];
+        Arrays.fill(gridCells, -1);
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            int gridCell = gridSpec.cellAt(cellLats[cell], cellLons[cell]);
+            if (gridCell >= 0) {
+                gridCells[gridCell] = cell;
+            }
+        }
+    }
+
+    /**
+     * Appends new years at the end of the year axis. Their anomalies are
+     * initialized to Float.NaN, to be filled with
+     * {@link YearAppend#set(int, int, float)} : the store keeps its previous
+     * years until {@link YearAppend#publish()}.
+     * The cell-major layout keeps some spare capacity so that successive
+     * appends only cost the new values, amortized.
+     * A mapped (read-only) store is first copied on the heap.
+     * Only one append can be filled at a time.
+     *
+     * @param newYears the ascending years to append, all after the last one.
+     * @return the append to fill, then to publish.
+     */
+    YearAppend appendYears(int[] newYears) {
+        return new YearAppend(newYears);
+    }
+
+    /**
+     * YearAppend class fills the years appended to a store. The values are
+     * written after the published years, in the spare capacity of the
+     * layouts or in new ones, where the readers don't look.
+     */
+    final class YearAppend {
+        private final int first;
+        private final int[] years;
+        private final int yearStride;
+        private final FloatBuffer cellMajor;
+        private final FloatBuffer yearMajor;
+        private final long[] naMask;
+
+        private YearAppend(int[] newYears) {
+            final Layout current = layout;
+            first = current.years.length;
+            final int yearCount = first + newYears.length;
+
+            if (yearCount > current.yearStride || current.cellMajor.isReadOnly()) {
+                int stride = Math.max(yearCount, current.yearStride + current.yearStride / 4);
+                float[] byCell = new float[cellCount * stride];
+                Arrays.fill(byCell, Float.NaN);
+                for (int cell = 0; cell < cellCount; cell++) {
+                    current.cellMajor.get(cell * current.yearStride, byCell, cell * stride, first);
+                }
+                cellMajor = FloatBuffer.wrap(byCell);
+                yearStride = stride;
+            } else {
+                cellMajor = current.cellMajor;
+                yearStride = current.yearStride;
+                for (int cell = 0; cell < cellCount; cell++) {
+                    for (int y = first; y < yearCount; y++) {
+                        cellMajor.put(cell * yearStride + y, Float.NaN);
+                    }
+                }
+            }
+
+            int needed = cellCount * yearCount;
+            if (needed > current.yearMajor.capacity() || current.yearMajor.isReadOnly()) {
+                int capacity = Math.max(needed, current.yearMajor.capacity() + current.yearMajor.capacity() / 4);
+                float[] byYear = new float[capacity];
+                current.yearMajor.get(0, byYear, 0, cellCount * first);
+                yearMajor = FloatBuffer.wrap(byYear);
+            } else {
+                yearMajor = current.yearMajor;
+            }
+            for (int i = cellCount * first; i < needed; i++) {
+                yearMajor.put(i, Float.NaN);
+            }
+
+            years = Arrays.copyOf(current.years, yearCount);
+            System.arraycopy(newYears, 0, years, first, newYears.length);
+            naMask = current.naMask.clone();
+        }
+
+        /**
+         * @return the index of the first appended year.
+         */
+        int getFirstIndex() { return first; }
+
+        /**
+         * Sets an anomaly of an appended year, in both layouts.
+         *
+         * @param cell the index of the cell.
+         * @param yearIndex the index of an appended year.
+         * @param value the anomaly, Float.NaN if it is unknown.
+         */
+        void set(int cell, int yearIndex, float value) {
+            if (yearIndex < first || yearIndex >= years.length) {
+                throw new IndexOutOfBoundsException("Année non ajoutée : " + yearIndex);
+            }
+            cellMajor.put(cell * yearStride + yearIndex, value);
+            yearMajor.put(yearIndex * cellCount + cell, value);
+
+            if (!Float.isNaN(value)) {
+                naMask[cell >> 6] &= ~(1L << cell);
+            }
+        }
+
+        /**
+         * Makes the appended years visible to the readers, all at once.
+         */
+        void publish() {
+            layout = new Layout(years, yearStride, cellMajor, yearMajor, naMask);
+        }
+    }
+
+    private static boolean isContiguous(int[] years) {
+        return years.length == 0
+                || years[years.length-1] - years[0] == years.length - 1;
+    }
+
+    public int getCellCount() { return cellCount; }
+
+    public int getYearCount() { return layout.years.length; }
+
+    public int getYear(int yearIndex) { return layout.years[yearIndex]; }
+
+    public float getCellLat(int cell) { return cellLats[cell]; }
+
+    public float getCellLon(int cell) { return cellLons[cell]; }
+
+    /**
+     * @return the grid of the cells (empty until the store is complete).
+     */
+    public GridSpec getGridSpec() { return gridSpec; }
+
+    /**
+     * @param gridCell the index of a cell of the GridSpec.
+     * @return the index of the store's cell, or -1 if the grid cell isn't stored.
+     */
+    public int cellOfGridCell(int gridCell) { return gridCells[gridCell]; }
+
+    /**
+     * Returns a copy of the year axis.
+     *
+     * @return an ascending array of the stored years.
+     */
+    public int[] getYears() { return layout.years.clone(); }
+
+    /**
+     * Estimates the heap memory taken by the store. The layouts of a mapped
+     * store are off-heap and aren't counted.
+     *
+     * @return a number of bytes.
+     */
+    public long getHeapBytes() {
+        final Layout current = layout;
+        long bytes = 4L * (current.years.length + cellLats.length + cellLons.length);
+        bytes += 8L * current.naMask.length;
+        bytes += gridCells == null ? 0 : 4L * gridCells.length;
+        bytes += pending == null ? 0 : 4L * pending.length;
+        bytes += current.cellMajor.isDirect() ? 0 : 4L * current.cellMajor.capacity();
+        bytes += current.yearMajor.isDirect() ? 0 : 4L * current.yearMajor.capacity();
+        return bytes;
+    }
+
+    /**
+     * Tells whether a cell contains at least one known anomaly.
+     *
+     * @param cell the index of the cell.
+     * @return false if every anomaly of the cell is "NA".
+     */
+    public boolean hasData(int cell) {
+        return (layout.naMask[cell >> 6] & (1L << cell)) == 0;
+    }
+
+    long[] getNaMask() { return layout.naMask; }
+
+
+    /**
+     * Retrieve the index of a year on the year axis.
+     *
+     * @param year an integer corresponding to the searched year.
+     * @return the index of the year, or -1 if the year isn't stored.
+     */
+    public int yearIndexOf(int year) {
+        final Layout current = layout;
+        final int[] years = current.years;
+        if (years.length == 0) {
+            return -1;
+        }
+        if (current.contiguousYears) {
+            int index = year - years[0];
+            return index >= 0 && index < years.length ? index : -1;
+        }
+        int index = Arrays.binarySearch(years, year);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Retrieve the index of a cell according to its center's coordinates.
+     * No object is allocated by this lookup.
+     *
+     * @param lat the latitude of the cell's center.
+     * @param lon the longitude of the cell's center.
+     * @return the index of the cell, or -1 if the cell isn't stored.
+     */
+    public int cellIndexOf(float lat, float lon) {
+        int gridCell = gridSpec.cellAt(lat, lon);
+        return gridCell >= 0 ? gridCells[gridCell] : -1;
+    }
+
+    /**
+     * Retrieve an anomaly according to its cell and year indexes.
+     *
+     * @param cell the index of the cell.
+     * @param yearIndex the index of the year.
+     * @return a float corresponding to the anomaly, Float.NaN if it is unknown.
+     */
+    public float get(int cell, int yearIndex) {
+        final Layout current = layout;
+        return current.cellMajor.get(cell * current.yearStride + yearIndex);
+    }
+
+    /**
+     * Copies the whole series of a cell (cell-major layout) into an array.
+     *
+     * @param cell the index of the cell.
+     * @param dst the destination array, of at least getYearCount() values.
+     * @return the destination array.
+     */
+    public float[] copyCellSeries(int cell, float[] dst) {
+        final Layout current = layout;
+        current.cellMajor.get(cell * current.yearStride, dst, 0, current.years.length);
+        return dst;
+    }
+
+    /**
+     * Copies the whole slice of a year (year-major layout) into an array.
+     * The values are ordered by cell index.
+     *
+     * @param yearIndex the index of the year.
+     * @param dst the destination array, of at least getCellCount() values.
+     * @return the destination array.
+     */
+    public float[] copyYearSlice(int yearIndex, float[] dst) {
+        layout.yearMajor.get(yearIndex * cellCount, dst, 0, cellCount);
+        return dst;
+    }
+
+    /**
+     * Copies the slice of a year, linearly interpolated toward the slice of
+     * the following year. A cell which is "NA" in one of the two years takes
+     * the value of the nearest one.
+     *
+     * @param yearIndex the index of the year.
+     * @param fraction the position between the year (0) and the following one (1).
+     * @param dst the destination array, of at least getCellCount() values.
+     * @param next a scratch array for the following year, of at least
+     * getCellCount() values, so that nothing is allocated per frame.
+     * @return the destination array.
+     */
+    public float[] interpolateYearSlice(int yearIndex, float fraction, float[] dst, float[] next) {
+        copyYearSlice(yearIndex, dst);
+
+        if (fraction <= 0 || yearIndex + 1 >= layout.years.length) {
+            return dst;
+        }
+
+        copyYearSlice(yearIndex + 1, next);
+        return SliceKernels.interpolate(dst, next, fraction, dst, cellCount);
+    }
+
+    @Override
+    public String toString() {
+        return "AnomalyStore{" + "cellCount=" + cellCount + ", yearCount=" + getYearCount() + '}';
+    }
+}
@@ -0,0 +1,182 @@
+package model;
+
+/**
+ * AnomalyTokenizer class parses the data rows of an anomaly .csv file
+ * straight from bytes : "lat,lon,anomaly,anomaly,...", where the coordinates
+ * are decimal numbers (e.g. 0.125 on a 0.25° grid) and an anomaly is either
+ * a decimal number or the "NA" sentinel.
+ * No object is allocated per row or per token.
+ *
+ * @author adepreis
+ */
+class AnomalyTokenizer {
+    // significant digits kept by the decimal parsing (long precision)
+    private static final int MAX_DIGITS = 18;
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10.0;
+        }
+    }
+
+    private float lat;
+    private float lon;
+    private int columnCount;
+    private int invalidColumn;
+
+    // parsing state of the current token
+    private boolean tokenValid;
+
+    public float getLat() { return lat; }
+
+    public float getLon() { return lon; }
+
+    /**
+     * @return the number of columns of the last parsed row (lat and lon included).
+     */
+    public int getColumnCount() { return columnCount; }
+
+    /**
+     * @return the first column of the last parsed row which couldn't be
+     * parsed, or -1 if every token is valid.
+     */
+    public int getInvalidColumn() { return invalidColumn; }
+
+    /**
+     * Parses a data row. The anomalies are rounded with 3 digits precision,
+     * "NA" anomalies are stored as Float.NaN.
+     *
+     * @param bytes the buffer containing the row.
+     * @param from the index of the first byte of the row.
+     * @param to the index following the last byte of the row (line break excluded).
+     * @param values the destination array, one anomaly per year.
+     * @return true if the row contains exactly 2 + values.length valid columns.
+     */
+    public boolean parseRow(byte[] bytes, int from, int to, float[] values) {
+        columnCount = 0;
+        invalidColumn = -1;
+
+        int start = from;
+        while (start <= to) {
+            int end = start;
+            while (end < to && bytes[end] != ',') {
+                end++;
+            }
+
+            int column = columnCount++;
+
+            if (column == 0) {
+                lat = (float) parseDecimal(bytes, start, end);
+            } else if (column == 1) {
+                lon = (float) parseDecimal(bytes, start, end);
+            } else if (column - 2 < values.length) {
+                values[column - 2] = parseAnomaly(bytes, start, end);
+            } else {
+                tokenValid = true;      // extra columns are only counted
+            }
+
+            if (!tokenValid && invalidColumn < 0) {
+                invalidColumn = column;
+            }
+
+            start = end + 1;
+        }
+
+        return invalidColumn < 0 && columnCount == values.length + 2;
+    }
+
+    private int parseInt(byte[] bytes, int from, int to) {
+        boolean negative = from < to && bytes[from] == '-';
+        int i = from < to && (bytes[from] == '-' || bytes[from] == '+') ? from + 1 : from;
+
+        int value = 0;
+        tokenValid = i < to;
+        for (; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                tokenValid = false;
+                return 0;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses an anomaly as Float.parseFloat would, then rounds it with
+     * 3 digits precision. "NA" gives Float.NaN.
+     */
+    private float parseAnomaly(byte[] bytes, int from, int to) {
+        if (to - from == 2 && bytes[from] == 'N' && bytes[from+1] == 'A') {
+            tokenValid = true;
+            return Float.NaN;
+        }
+
+        float value = (float) parseDecimal(bytes, from, to);
+
+        // save value with 3 digits precision
+        return (float)Math.round(value * 1000.f) / 1000.f;
+    }
+
+    private double parseDecimal(byte[] bytes, int from, int to) {
+        boolean negative = from < to && bytes[from] == '-';
+        int i = from < to && (bytes[from] == '-' || bytes[from] == '+') ? from + 1 : from;
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+
+        for (; i < to; i++) {
+            byte c = bytes[i];
+
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    // leading zeros aren't significant
+                    if (seenPoint) { exponent--; }
+                } else if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (seenPoint) { exponent--; }
+                } else if (!seenPoint) {
+                    exponent++;         // digits beyond the precision kept
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if ((c == 'e' || c == 'E') && seenDigit) {
+                int exp = parseInt(bytes, i + 1, to);
+                if (!tokenValid) {
+                    return Double.NaN;
+                }
+                exponent += exp;
+                i = to;
+                break;
+            } else {
+                tokenValid = false;
+                return Double.NaN;
+            }
+        }
+
+        tokenValid = seenDigit;
+        double value = scale(mantissa, exponent);
+        return negative ? -value : value;
+    }
+
+    private static double scale(long mantissa, int exponent) {
+        if (mantissa == 0) {
+            return 0.0;
+        }
+        if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            return mantissa / POWERS_OF_TEN[-exponent];
+        }
+        if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            return mantissa * POWERS_OF_TEN[exponent];
+        }
+        return mantissa * Math.pow(10, exponent);
+    }
+}
@@ -0,0 +1,232 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import util.SliceKernels;
+
+/**
+ * ChunkedCsvReader class parses a whole anomaly .csv file in parallel.
+ * The data lines are recursively split into byte ranges aligned on line
+ * boundaries, which are parsed on the common fork-join pool. Each chunk
+ * computes its local min/max, merged once every chunk is parsed.
+ *
+ * @author adepreis
+ */
+class ChunkedCsvReader {
+    // Under this size (in bytes), a range is parsed instead of being split
+    private static final int CHUNK_SIZE = 1 << 18;
+
+    private final byte[] bytes;
+
+    private AnomalyStore store;
+    private float minAnomaly;
+    private float maxAnomaly;
+
+    // rejected rows : line number, column count and first invalid column
+    private int[] errorLines = new int[0];
+    private int[] errorColumnCounts = new int[0];
+    private int[] errorInvalidColumns = new int[0];
+
+    /**
+     * @param bytes the whole content of the .csv file.
+     */
+    ChunkedCsvReader(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    AnomalyStore getStore() { return store; }
+
+    float getMinAnomaly() { return minAnomaly; }
+
+    float getMaxAnomaly() { return maxAnomaly; }
+
+    int[] getErrorLines() { return errorLines; }
+
+    int[] getErrorColumnCounts() { return errorColumnCounts; }
+
+    int[] getErrorInvalidColumns() { return errorInvalidColumns; }
+
+    /**
+     * Parses the file. The header is validated as in the sequential reading.
+     *
+     * @return false if the header isn't valid.
+     */
+    boolean read() {
+        int headerEnd = lineEnd(bytes, 0, bytes.length);
+        int[] years = ResourceManager.parseHeader(
+                new String(bytes, 0, trimEnd(0, headerEnd), StandardCharsets.UTF_8));
+
+        if (years == null) {
+            return false;
+        }
+
+        List<Chunk> chunks = ForkJoinPool.commonPool().invoke(
+                new ChunkTask(years.length, Math.min(headerEnd + 1, bytes.length), bytes.length));
+
+        // Merge chunks in file order
+        store = new AnomalyStore(years);
+        minAnomaly = Float.MAX_VALUE;
+        maxAnomaly = -Float.MAX_VALUE;
+        float[] yearAno = new float[years.length];
+        int firstLine = 2;      // the header is the line 1
+
+        for (Chunk chunk : chunks) {
+            for (int row = 0; row < chunk.rows; row++) {
+                System.arraycopy(chunk.values, row * years.length, yearAno, 0, years.length);
+                store.addCell(chunk.lats[row], chunk.lons[row], yearAno);
+            }
+            minAnomaly = Math.min(minAnomaly, chunk.min);
+            maxAnomaly = Math.max(maxAnomaly, chunk.max);
+
+            for (int e = 0; e < chunk.errors; e++) {
+                addError(firstLine + chunk.errorLines[e], chunk.errorColumnCounts[e], chunk.errorInvalidColumns[e]);
+            }
+            firstLine += chunk.lines;
+        }
+        store.complete();
+
+        return true;
+    }
+
+    private void addError(int line, int columnCount, int invalidColumn) {
+        int n = errorLines.length;
+        errorLines = Arrays.copyOf(errorLines, n + 1);
+        errorColumnCounts = Arrays.copyOf(errorColumnCounts, n + 1);
+        errorInvalidColumns = Arrays.copyOf(errorInvalidColumns, n + 1);
+        errorLines[n] = line;
+        errorColumnCounts[n] = columnCount;
+        errorInvalidColumns[n] = invalidColumn;
+    }
+
+    // index of the '\n' ending the line starting at from (or to)
+    private static int lineEnd(byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to && bytes[i] != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    // ignores the '\r' of Windows line endings
+    private int trimEnd(int from, int end) {
+        return end > from && bytes[end-1] == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Rows parsed from a range of the file.
+     */
+    private static final class Chunk {
+        int lines;
+        int rows;
+        float[] lats = new float[64];
+        float[] lons = new float[64];
+        float[] values;
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+
+        // rejected rows, line numbers being relative to the chunk
+        int errors;
+        int[] errorLines = new int[4];
+        int[] errorColumnCounts = new int[4];
+        int[] errorInvalidColumns = new int[4];
+    }
+
+    /**
+     * Parses a range of whole lines, or splits it in two on a line boundary.
+     */
+    private final class ChunkTask extends RecursiveTask<List<Chunk>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int yearCount;
+        private final int from;
+        private final int to;
+
+        ChunkTask(int yearCount, int from, int to) {
+            this.yearCount = yearCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = Math.min(lineEnd(bytes, from + (to - from) / 2, to) + 1, to);
+
+                if (middle < to) {
+                    ChunkTask left = new ChunkTask(yearCount, from, middle);
+                    ChunkTask right = new ChunkTask(yearCount, middle, to);
+                    left.fork();
+
+                    List<Chunk> chunks = new ArrayList<>(right.compute());
+                    chunks.addAll(0, left.join());
+                    return chunks;
+                }
+            }
+
+            List<Chunk> chunks = new ArrayList<>(1);
+            chunks.add(parse());
+            return chunks;
+        }
+
+        private Chunk parse() {
+            Chunk chunk = new Chunk();
+            chunk.values = new float[chunk.lats.length * yearCount];
+
+            AnomalyTokenizer tokenizer = new AnomalyTokenizer();
+            float[] yearAno = new float[yearCount];
+
+            int start = from;
+            while (start < to) {
+                int end = lineEnd(bytes, start, to);
+                int last = trimEnd(start, end);
+
+                if (last > start) {
+                    if (tokenizer.parseRow(bytes, start, last, yearAno)) {
+                        addRow(chunk, tokenizer.getLat(), tokenizer.getLon(), yearAno);
+                    } else {
+                        addError(chunk, chunk.lines, tokenizer);
+                    }
+                }
+                chunk.lines++;
+                start = end + 1;
+            }
+            return chunk;
+        }
+
+        private void addRow(Chunk chunk, float lat, float lon, float[] yearAno) {
+            if (chunk.rows == chunk.lats.length) {
+                int capacity = chunk.rows * 2;
+                chunk.lats = Arrays.copyOf(chunk.lats, capacity);
+                chunk.lons = Arrays.copyOf(chunk.lons, capacity);
+                chunk.values = Arrays.copyOf(chunk.values, capacity * yearCount);
+            }
+
+            int row = chunk.rows++;
+            chunk.lats[row] = lat;
+            chunk.lons[row] = lon;
+
+            // "NA" are ignored
+            chunk.min = Math.min(chunk.min, SliceKernels.min(yearAno, 0, yearCount));
+            chunk.max = Math.max(chunk.max, SliceKernels.max(yearAno, 0, yearCount));
+            System.arraycopy(yearAno, 0, chunk.values, row * yearCount, yearCount);
+        }
+
+        private void addError(Chunk chunk, int line, AnomalyTokenizer tokenizer) {
+            if (chunk.errors == chunk.errorLines.length) {
+                int capacity = chunk.errors * 2;
+                chunk.errorLines = Arrays.copyOf(chunk.errorLines, capacity);
+                chunk.errorColumnCounts = Arrays.copyOf(chunk.errorColumnCounts, capacity);
+                chunk.errorInvalidColumns = Arrays.copyOf(chunk.errorInvalidColumns, capacity);
+            }
+
+            int e = chunk.errors++;
+            chunk.errorLines[e] = line;
+            chunk.errorColumnCounts[e] = tokenizer.getColumnCount();
+            chunk.errorInvalidColumns[e] = tokenizer.getInvalidColumn();
+        }
+    }
+}
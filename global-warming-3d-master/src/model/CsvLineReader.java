@@ -0,0 +1,104 @@
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * CsvLineReader class reads the lines of a stream into a reused byte buffer.
+ * After each call to {@link #nextLine()}, the current line lies in
+ * getBuffer() between getLineStart() and getLineEnd() (line break excluded).
+ *
+ * @author adepreis
+ */
+class CsvLineReader implements AutoCloseable {
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final InputStream is;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+
+    CsvLineReader(InputStream is) {
+        this.is = is;
+    }
+
+    byte[] getBuffer() { return buffer; }
+
+    int getLineStart() { return lineStart; }
+
+    int getLineEnd() { return lineEnd; }
+
+    /**
+     * @return the number of the current line, starting at 1.
+     */
+    int getLineNumber() { return lineNumber; }
+
+    /**
+     * Moves to the next line of the stream.
+     *
+     * @return false if the end of the stream is reached.
+     * @throws IOException if the stream can't be read.
+     */
+    boolean nextLine() throws IOException {
+        int scan = position;
+
+        while (true) {
+            while (scan < limit && buffer[scan] != '\n') {
+                scan++;
+            }
+
+            if (scan < limit || endOfStream) {
+                break;
+            }
+
+            // Line not complete : compact and refill the buffer
+            scan -= position;
+            fill();
+        }
+
+        if (position == limit && endOfStream) {
+            return false;
+        }
+
+        lineStart = position;
+        lineEnd = scan;
+        position = Math.min(scan + 1, limit);
+        lineNumber++;
+
+        // ignores the '\r' of Windows line endings
+        if (lineEnd > lineStart && buffer[lineEnd-1] == '\r') {
+            lineEnd--;
+        }
+        return true;
+    }
+
+    private void fill() throws IOException {
+        int remaining = limit - position;
+
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);      // line longer than the buffer
+        }
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        limit = remaining;
+
+        int read = is.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+}
@@ -1,7 +1,6 @@
 package model;
 
 import javafx.geometry.Point3D;
-import javafx.util.Pair;
 
 /**
  * The GeoCoord class represents geographical coordinates.
@@ -11,8 +10,9 @@ import javafx.util.Pair;
  * @author adepreis
  */
 public class GeoCoord {
-    private static final float TEXTURE_LAT_OFFSET = -0.2f;
-    private static final float TEXTURE_LON_OFFSET = 2.8f;
+    // shared with GridVertexCache
+    static final float TEXTURE_LAT_OFFSET = -0.2f;
+    static final float TEXTURE_LON_OFFSET = 2.8f;
     
     private final int lat;
     private final int lon;
@@ -77,14 +77,28 @@ public class GeoCoord {
         return lonToString(lon);
     }
     
+    // the latitudes are positive in the north
     public static String latToString(int lati) {
-        return lati <= 0 ? -lati + "° Nord" : lati + "° Sud" ;
+        return lati >= 0 ? lati + "° Nord" : -lati + "° Sud" ;
     }
     
     public static String lonToString(int longi) {
         return longi <= 0 ? -longi + "° Ouest" : longi + "° Est" ;
     }
     
+    public static String latToString(double lati) {
+        return lati >= 0 ? degreesToString(lati) + "° Nord" : degreesToString(-lati) + "° Sud" ;
+    }
+    
+    public static String lonToString(double longi) {
+        return longi <= 0 ? degreesToString(-longi) + "° Ouest" : degreesToString(longi) + "° Est" ;
+    }
+    
+    // "4" for 4.0, "0.25" for 0.25
+    private static String degreesToString(double degrees) {
+        return degrees == Math.rint(degrees) ? Long.toString((long) degrees) : Double.toString(degrees);
+    }
+    
     /**
      * Converts geographic coordinates into a 3D point.
      * 
@@ -105,26 +119,40 @@ public class GeoCoord {
     }
 
     /**
-     * Converts a 3D point into geographic coordinates.
+     * @param lat a latitude, possibly beyond a pole.
+     * @return the latitude, stopped on the poles.
+     */
+    public static float clampLat(double lat) {
+        return (float) Math.max(-90.0, Math.min(90.0, lat));
+    }
+
+    /**
+     * Returns the latitude of a 3D point, whatever its distance to the
+     * globe's center (the inverse of geoCoordTo3dCoord).
      * 
-     * @param point3D
-     * @return a pair corresponding to geographic coordinates.
-     * (key : latitude, value : longitude)
+     * @param point3D a point of the globe, e.g. a picked point.
+     * @return the latitude of the point, between -90 and 90.
      */
-    public static Pair<Integer, Integer> coord3dToGeoCoord(Point3D point3D) {
-        double adjustedY = (point3D.getY() > 0) ? Math.min(point3D.getY(), 1.0) : Math.max(point3D.getY(), -1.0);
+    public static double pointLat(Point3D point3D) {
+        double magnitude = point3D.magnitude();
+        double sinLat = magnitude > 0 ? -point3D.getY() / magnitude : 0;
         
-        double lat_cor = Math.asin(adjustedY / 1.0f);
-        double lon_cor = Math.atan2(point3D.getZ(), point3D.getX());
+        double lat = Math.toDegrees(Math.asin(Math.max(-1.0, Math.min(1.0, sinLat)))) - TEXTURE_LAT_OFFSET;
         
-        lat_cor = (float)Math.toDegrees(lat_cor);
-        lon_cor = (float)Math.toDegrees(lon_cor);
-        
-        lat_cor -= TEXTURE_LAT_OFFSET;
-        lon_cor -= TEXTURE_LON_OFFSET;
+        // the texture offset can't push a pole further
+        return Math.max(-90.0, Math.min(90.0, lat));
+    }
+    
+    /**
+     * Returns the longitude of a 3D point (the inverse of geoCoordTo3dCoord).
+     * 
+     * @param point3D a point of the globe, e.g. a picked point.
+     * @return the longitude of the point, between -180 and 180.
+     */
+    public static double pointLon(Point3D point3D) {
+        double lon = Math.toDegrees(Math.atan2(-point3D.getX(), point3D.getZ())) - TEXTURE_LON_OFFSET;
         
-        // TO FIX. Caution : return 92° for south pole latitude (which doesnt exists !)
-        return new Pair<>((int)(4*(Math.round(lat_cor/4))), (int)(4*(Math.round(lon_cor/4))+2));
+        return lon < -180 ? lon + 360 : (lon > 180 ? lon - 360 : lon);
     }
     
 }
\ No newline at end of file
@@ -8,5 +8,6 @@ package model;
  */
 public enum GlobeAnomaliesRepresentation {
     BY_COLOR,
-    BY_HISTOGRAM;
+    BY_HISTOGRAM,
+    BY_TREND;
 }
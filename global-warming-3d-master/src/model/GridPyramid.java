@@ -0,0 +1,239 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * GridPyramid class gives the anomalies of a store at several resolutions :
+ * the level 0 is the store's own grid, each following level merges 2x2
+ * cells of the previous one (e.g. 0.5°, 1°, 2°, 4°, 8°).
+ *
+ * A coarse cell is the mean of the store's cells it covers, weighted by
+ * their area on the globe. "NA" anomalies are left out of the mean, a
+ * coarse cell being "NA" only if all of its cells are.
+ * The levels are computed year by year, from the store's slices, so that
+ * appended years are available at every level.
+ *
+ * @author adepreis
+ */
+public class GridPyramid {
+    // the coarsest level has cells of at most this step, in degrees
+    private static final double MAX_LEVEL_STEP = 8.0;
+
+    private final AnomalyStore store;
+
+    // area of each store cell, relative to an equatorial cell
+    private final float[] cellAreas;
+
+    private final List<Level> levels = new ArrayList<>();
+
+    /**
+     * Builds every level of the store's grid.
+     *
+     * @param store a complete store.
+     */
+    public GridPyramid(AnomalyStore store) {
+        this.store = store;
+
+        GridSpec grid = store.getGridSpec();
+        cellAreas = new float[store.getCellCount()];
+        double halfStep = Math.toRadians(grid.getLatStep()) / 2;
+        for (int cell = 0; cell < cellAreas.length; cell++) {
+            double lat = Math.toRadians(store.getCellLat(cell));
+            double south = Math.max(-Math.PI / 2, lat - halfStep);
+            double north = Math.min(Math.PI / 2, lat + halfStep);
+            cellAreas[cell] = (float) ((Math.sin(north) - Math.sin(south)) / (2 * Math.sin(halfStep)));
+        }
+
+        levels.add(new Level(grid, 1));
+        for (int factor = 2; ; factor *= 2) {
+            GridSpec coarse = coarsen(grid, factor);
+            if (Math.max(coarse.getLatStep(), coarse.getLonStep()) > MAX_LEVEL_STEP * (1 + 1e-6)
+                    || coarse.getCellCount() >= levels.get(levels.size()-1).grid.getCellCount()) {
+                break;
+            }
+            levels.add(new Level(coarse, factor));
+        }
+    }
+
+    // blocks of factor x factor cells, centered on their cells' centers
+    private static GridSpec coarsen(GridSpec grid, int factor) {
+        return new GridSpec(grid.getLatOrigin() + (factor - 1) * grid.getLatStep() / 2,
+                            grid.getLonOrigin() + (factor - 1) * grid.getLonStep() / 2,
+                            grid.getLatStep() * factor, grid.getLonStep() * factor,
+                            (grid.getLatCount() + factor - 1) / factor,
+                            (grid.getLonCount() + factor - 1) / factor);
+    }
+
+    /**
+     * @param store a store.
+     * @return true if the pyramid was built for this store.
+     */
+    public boolean isBuiltFor(AnomalyStore store) {
+        return this.store == store;
+    }
+
+    public AnomalyStore getStore() { return store; }
+
+    public int getLevelCount() { return levels.size(); }
+
+    /**
+     * @param level the index of the level, 0 being the finest.
+     * @return the level.
+     */
+    public Level getLevel(int level) { return levels.get(level); }
+
+    public List<Level> getLevels() { return Collections.unmodifiableList(levels); }
+
+    /**
+     * Level class is a resolution of the pyramid.
+     */
+    public final class Level {
+        private final GridSpec grid;
+        private final int factor;
+
+        // level cell of each store cell
+        private final int[] levelCells;
+
+        private Level(GridSpec grid, int factor) {
+            this.grid = grid;
+            this.factor = factor;
+
+            GridSpec base = store.getGridSpec();
+            levelCells = new int[store.getCellCount()];
+            for (int cell = 0; cell < levelCells.length; cell++) {
+                int baseCell = base.cellAt(store.getCellLat(cell), store.getCellLon(cell));
+                levelCells[cell] = baseCell < 0 ? -1
+                        : grid.cellIndex(baseCell / base.getLonCount() / factor,
+                                         baseCell % base.getLonCount() / factor);
+            }
+        }
+
+        public GridSpec getGridSpec() { return grid; }
+
+        /**
+         * @return the number of store's cells merged along each axis.
+         */
+        public int getFactor() { return factor; }
+
+        /**
+         * @return new scratch arrays for the computations of this level, to
+         * be used by one thread at a time.
+         */
+        public Scratch newScratch() {
+            return new Scratch(store.getCellCount(), levels.get(0).grid.getCellCount());
+        }
+
+        /**
+         * Computes the anomalies of every cell of the level for a year,
+         * linearly interpolated toward the following year. Allocates its
+         * scratch arrays : see the other copyYearSlice for repeated calls.
+         *
+         * @param yearIndex the index of the year in the store.
+         * @param fraction the position toward the following year (0 to 1).
+         * @param dst the destination array, of at least getCellCount() values
+         * of the level's GridSpec.
+         * @return the destination array, Float.NaN for the "NA" cells.
+         */
+        public float[] copyYearSlice(int yearIndex, float fraction, float[] dst) {
+            return copyYearSlice(yearIndex, fraction, dst, newScratch());
+        }
+
+        /**
+         * Computes the anomalies of every cell of the level for a year,
+         * linearly interpolated toward the following year, in the caller's
+         * scratch arrays.
+         *
+         * @param yearIndex the index of the year in the store.
+         * @param fraction the position toward the following year (0 to 1).
+         * @param dst the destination array, of at least getCellCount() values
+         * of the level's GridSpec.
+         * @param scratch scratch arrays of the pyramid, owned by the calling thread.
+         * @return the destination array, Float.NaN for the "NA" cells.
+         */
+        public float[] copyYearSlice(int yearIndex, float fraction, float[] dst, Scratch scratch) {
+            store.interpolateYearSlice(yearIndex, fraction, scratch.yearSlice, scratch.nextSlice);
+            return aggregate(scratch.yearSlice, dst, scratch);
+        }
+
+        /**
+         * Computes the values of every cell of the level from one value per
+         * store cell, the same way as the anomalies (e.g. the cells' trends).
+         * Allocates its scratch arrays.
+         *
+         * @param values a value per store cell, Float.NaN if unknown.
+         * @param dst the destination array, of at least getCellCount() values
+         * of the level's GridSpec.
+         * @return the destination array, Float.NaN for the unknown cells.
+         */
+        public float[] aggregate(float[] values, float[] dst) {
+            return aggregate(values, dst, newScratch());
+        }
+
+        /**
+         * Computes the values of every cell of the level from one value per
+         * store cell, in the caller's scratch arrays.
+         *
+         * @param values a value per store cell, Float.NaN if unknown.
+         * @param dst the destination array, of at least getCellCount() values
+         * of the level's GridSpec.
+         * @param scratch scratch arrays of the pyramid, owned by the calling thread.
+         * @return the destination array, Float.NaN for the unknown cells.
+         */
+        public float[] aggregate(float[] values, float[] dst, Scratch scratch) {
+            final int cellCount = grid.getCellCount();
+
+            if (factor == 1) {
+                Arrays.fill(dst, 0, cellCount, Float.NaN);
+                for (int cell = 0; cell < values.length; cell++) {
+                    if (levelCells[cell] >= 0) {
+                        dst[levelCells[cell]] = values[cell];
+                    }
+                }
+                return dst;
+            }
+
+            final float[] weights = scratch.weights;
+            Arrays.fill(weights, 0, cellCount, 0.f);
+            Arrays.fill(dst, 0, cellCount, 0.f);
+            for (int cell = 0; cell < values.length; cell++) {
+                float value = values[cell];
+                int levelCell = levelCells[cell];
+                if (levelCell >= 0 && !Float.isNaN(value)) {
+                    dst[levelCell] += value * cellAreas[cell];
+                    weights[levelCell] += cellAreas[cell];
+                }
+            }
+            for (int levelCell = 0; levelCell < cellCount; levelCell++) {
+                dst[levelCell] = weights[levelCell] > 0 ? dst[levelCell] / weights[levelCell] : Float.NaN;
+            }
+            return dst;
+        }
+
+        @Override
+        public String toString() {
+            return "Level{" + "factor=" + factor + ", " + grid + '}';
+        }
+    }
+
+    /**
+     * Scratch class holds the arrays a level reuses from one computation to
+     * the next. It fits every level of its pyramid, but isn't thread-safe :
+     * each computing thread owns its own.
+     */
+    public static final class Scratch {
+        // slices of the store, of the year and of the following one
+        private final float[] yearSlice;
+        private final float[] nextSlice;
+        // area covered by the known cells of each level cell
+        private final float[] weights;
+
+        private Scratch(int storeCellCount, int levelCellCount) {
+            yearSlice = new float[storeCellCount];
+            nextSlice = new float[storeCellCount];
+            weights = new float[levelCellCount];
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package model;
+
+import java.util.Arrays;
+import javafx.geometry.Point3D;
+
+/**
+ * GridSpec class describes a regular latitude/longitude grid : the center of
+ * its first cell (origin), the spacing between cells (step) and the number
+ * of rows and columns (extent).
+ *
+ * Cells are indexed row (latitude) by row, from the origin. Every mapping
+ * between coordinates, cell index and 3D point is direct arithmetic,
+ * without allocation. A cell spans half a step around its center.
+ *
+ * @author adepreis
+ */
+public final class GridSpec {
+    // coordinates closer than this fraction of a step are the same
+    private static final double TOLERANCE = 1e-3;
+
+    private final double latOrigin;
+    private final double lonOrigin;
+    private final double latStep;
+    private final double lonStep;
+    private final int latCount;
+    private final int lonCount;
+
+    // true if the columns go round the globe
+    private final boolean lonWraps;
+
+    /**
+     * @param latOrigin the latitude of the first row's centers.
+     * @param lonOrigin the longitude of the first column's centers.
+     * @param latStep the spacing between two rows, in degrees.
+     * @param lonStep the spacing between two columns, in degrees.
+     * @param latCount the number of rows.
+     * @param lonCount the number of columns.
+     */
+    public GridSpec(double latOrigin, double lonOrigin, double latStep, double lonStep, int latCount, int lonCount) {
+        if (latStep <= 0 || lonStep <= 0 || latCount < 0 || lonCount < 0) {
+            throw new IllegalArgumentException("Invalid grid : step " + latStep + "x" + lonStep
+                    + ", extent " + latCount + "x" + lonCount);
+        }
+        this.latOrigin = latOrigin;
+        this.lonOrigin = lonOrigin;
+        this.latStep = latStep;
+        this.lonStep = lonStep;
+        this.latCount = latCount;
+        this.lonCount = lonCount;
+        this.lonWraps = Math.abs(lonCount * lonStep - 360) < TOLERANCE * lonStep;
+    }
+
+    /**
+     * Infers the smallest grid containing every cell center : the step is
+     * the smallest spacing between two distinct coordinates.
+     *
+     * @param lats the latitude of each cell.
+     * @param lons the longitude of each cell.
+     * @return the grid of the cells.
+     */
+    public static GridSpec fromCenters(float[] lats, float[] lons) {
+        if (lats.length == 0) {
+            return new GridSpec(0, 0, 1, 1, 0, 0);
+        }
+
+        float[] sortedLats = lats.clone();
+        float[] sortedLons = lons.clone();
+        Arrays.sort(sortedLats);
+        Arrays.sort(sortedLons);
+
+        double latStep = smallestSpacing(sortedLats);
+        double lonStep = smallestSpacing(sortedLons);
+
+        // a single row or column takes the step of the other axis
+        if (latStep == 0) { latStep = lonStep == 0 ? 1 : lonStep; }
+        if (lonStep == 0) { lonStep = latStep; }
+
+        double latMin = sortedLats[0];
+        double lonMin = sortedLons[0];
+        int latCount = (int) Math.round((sortedLats[sortedLats.length-1] - latMin) / latStep) + 1;
+        int lonCount = (int) Math.round((sortedLons[sortedLons.length-1] - lonMin) / lonStep) + 1;
+
+        return new GridSpec(latMin, lonMin, latStep, lonStep, latCount, lonCount);
+    }
+
+    private static double smallestSpacing(float[] sorted) {
+        double step = 0;
+        for (int i = 1; i < sorted.length; i++) {
+            double diff = sorted[i] - sorted[i-1];
+            if (diff > 1e-4 && (step == 0 || diff < step)) {
+                step = diff;
+            }
+        }
+        return step;
+    }
+
+    public double getLatOrigin() { return latOrigin; }
+
+    public double getLonOrigin() { return lonOrigin; }
+
+    public double getLatStep() { return latStep; }
+
+    public double getLonStep() { return lonStep; }
+
+    public int getLatCount() { return latCount; }
+
+    public int getLonCount() { return lonCount; }
+
+    public int getCellCount() { return latCount * lonCount; }
+
+    public double getRowLat(int row) { return latOrigin + row * latStep; }
+
+    public double getColumnLon(int column) { return lonOrigin + column * lonStep; }
+
+    public double getCellLat(int cell) { return getRowLat(cell / lonCount); }
+
+    public double getCellLon(int cell) { return getColumnLon(cell % lonCount); }
+
+    public int cellIndex(int row, int column) { return row * lonCount + column; }
+
+    /**
+     * @param lat a latitude.
+     * @return the row containing the latitude, or -1 if it is out of the grid.
+     */
+    public int rowOf(double lat) {
+        int row = (int) Math.floor((lat - latOrigin) / latStep + 0.5);
+
+        // the northern edge belongs to the last row
+        if (row == latCount && lat <= getRowLat(latCount - 1) + latStep / 2 * (1 + TOLERANCE)) {
+            row--;
+        }
+        return row >= 0 && row < latCount ? row : -1;
+    }
+
+    /**
+     * @param lon a longitude.
+     * @return the column containing the longitude, or -1 if it is out of the grid.
+     */
+    public int columnOf(double lon) {
+        int column = (int) Math.floor((lon - lonOrigin) / lonStep + 0.5);
+
+        if (lonWraps) {
+            return Math.floorMod(column, lonCount);
+        }
+        if (column == lonCount && lon <= getColumnLon(lonCount - 1) + lonStep / 2 * (1 + TOLERANCE)) {
+            column--;
+        }
+        return column >= 0 && column < lonCount ? column : -1;
+    }
+
+    /**
+     * Returns the cell containing a position.
+     *
+     * @param lat a latitude.
+     * @param lon a longitude.
+     * @return the index of the cell, or -1 if the position is out of the grid.
+     */
+    public int cellContaining(double lat, double lon) {
+        int row = rowOf(lat);
+        int column = columnOf(lon);
+        return row >= 0 && column >= 0 ? cellIndex(row, column) : -1;
+    }
+
+    /**
+     * Returns the cell containing a point of the globe, whatever its radius.
+     *
+     * @param point a 3D point, e.g. a picked point.
+     * @return the index of the cell, or -1 if the point is out of the grid.
+     */
+    public int cellContaining(Point3D point) {
+        return cellContaining(GeoCoord.pointLat(point), GeoCoord.pointLon(point));
+    }
+
+    /**
+     * Returns the cell centered on a position.
+     *
+     * @param lat the latitude of a cell center.
+     * @param lon the longitude of a cell center.
+     * @return the index of the cell, or -1 if no cell is centered there.
+     */
+    public int cellAt(double lat, double lon) {
+        int cell = cellContaining(lat, lon);
+        if (cell < 0
+                || Math.abs(lat - getCellLat(cell)) > TOLERANCE * latStep
+                || Math.abs(Math.IEEEremainder(lon - getCellLon(cell), 360)) > TOLERANCE * lonStep) {
+            return -1;
+        }
+        return cell;
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @param radius the distance to the globe's center.
+     * @return the 3D point at the center of the cell.
+     */
+    public Point3D cellCenter(int cell, double radius) {
+        return GeoCoord.geoCoordTo3dCoord((float) getCellLat(cell), (float) getCellLon(cell), radius);
+    }
+
+    @Override
+    public String toString() {
+        return "GridSpec{" + "origin=" + latOrigin + "/" + lonOrigin + ", step=" + latStep + "x" + lonStep
+                + ", extent=" + latCount + "x" + lonCount + '}';
+    }
+}
@@ -0,0 +1,160 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * GridVertexCache class holds the unit-sphere positions of every vertex of
+ * a latitude/longitude lattice, as GeoCoord.geoCoordTo3dCoord would compute
+ * them (texture offsets included).
+ *
+ * The trigonometry is separable : sines and cosines are computed once per
+ * lattice row and column, then the positions are stored in a flat
+ * float[] (x, y, z per vertex). Geometry builders scale them by a radius
+ * without any trigonometry nor allocation per vertex.
+ *
+ * @author adepreis
+ */
+public class GridVertexCache {
+    private static final Map<Key, GridVertexCache> CACHES = new ConcurrentHashMap<>();
+
+    private final int latCount;
+    private final int lonCount;
+
+    // x, y, z of each vertex, row (latitude) by row
+    private final float[] unitPoints;
+
+    /**
+     * Computes the vertices of a lattice.
+     *
+     * @param lats the latitude of each row of the lattice.
+     * @param lons the longitude of each column of the lattice.
+     */
+    public GridVertexCache(float[] lats, float[] lons) {
+        this.latCount = lats.length;
+        this.lonCount = lons.length;
+
+        double[] sinLat = new double[latCount];
+        double[] cosLat = new double[latCount];
+        for (int i = 0; i < latCount; i++) {
+            double lat = Math.toRadians(lats[i] + GeoCoord.TEXTURE_LAT_OFFSET);
+            sinLat[i] = Math.sin(lat);
+            cosLat[i] = Math.cos(lat);
+        }
+
+        double[] sinLon = new double[lonCount];
+        double[] cosLon = new double[lonCount];
+        for (int j = 0; j < lonCount; j++) {
+            double lon = Math.toRadians(lons[j] + GeoCoord.TEXTURE_LON_OFFSET);
+            sinLon[j] = Math.sin(lon);
+            cosLon[j] = Math.cos(lon);
+        }
+
+        unitPoints = new float[latCount * lonCount * 3];
+        int p = 0;
+        for (int i = 0; i < latCount; i++) {
+            for (int j = 0; j < lonCount; j++) {
+                unitPoints[p++] = (float) (-sinLon[j] * cosLat[i]);
+                unitPoints[p++] = (float) -sinLat[i];
+                unitPoints[p++] = (float) (cosLon[j] * cosLat[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the shared cache of a regular lattice, computed on first use.
+     *
+     * @param latMin the latitude of the first row.
+     * @param lonMin the longitude of the first column.
+     * @param latStep the spacing (in degrees) between two rows.
+     * @param lonStep the spacing (in degrees) between two columns.
+     * @param latCount the number of rows.
+     * @param lonCount the number of columns.
+     * @return the vertex cache of the lattice.
+     */
+    public static GridVertexCache of(double latMin, double lonMin, double latStep, double lonStep,
+                                     int latCount, int lonCount) {
+        return CACHES.computeIfAbsent(new Key(latMin, lonMin, latStep, lonStep, latCount, lonCount), key -> {
+            float[] lats = new float[latCount];
+            for (int i = 0; i < latCount; i++) {
+                lats[i] = (float) (latMin + i * latStep);
+            }
+            float[] lons = new float[lonCount];
+            for (int j = 0; j < lonCount; j++) {
+                lons[j] = (float) (lonMin + j * lonStep);
+            }
+            return new GridVertexCache(lats, lons);
+        });
+    }
+
+    public int getLatCount() { return latCount; }
+
+    public int getLonCount() { return lonCount; }
+
+    public int getVertexCount() { return latCount * lonCount; }
+
+    /**
+     * @param latIndex the row of the vertex.
+     * @param lonIndex the column of the vertex.
+     * @return the index of the vertex in the points arrays.
+     */
+    public int vertexIndex(int latIndex, int lonIndex) {
+        return latIndex * lonCount + lonIndex;
+    }
+
+    public float getX(int vertex) { return unitPoints[3 * vertex]; }
+
+    public float getY(int vertex) { return unitPoints[3 * vertex + 1]; }
+
+    public float getZ(int vertex) { return unitPoints[3 * vertex + 2]; }
+
+    /**
+     * Writes a vertex scaled by a radius.
+     *
+     * @param vertex the index of the vertex.
+     * @param radius the distance to the globe's center.
+     * @param dst the destination array.
+     * @param offset the index of the x coordinate in dst.
+     */
+    public void copyPoint(int vertex, float radius, float[] dst, int offset) {
+        int v = 3 * vertex;
+        dst[offset] = unitPoints[v] * radius;
+        dst[offset + 1] = unitPoints[v + 1] * radius;
+        dst[offset + 2] = unitPoints[v + 2] * radius;
+    }
+
+    /**
+     * @param radius the distance to the globe's center.
+     * @return the points of every vertex scaled by the radius, in the
+     * TriangleMesh points format.
+     */
+    public float[] getPoints(float radius) {
+        float[] points = new float[unitPoints.length];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = unitPoints[i] * radius;
+        }
+        return points;
+    }
+
+    /**
+     * Key of a regular lattice in the shared caches.
+     */
+    private static final class Key {
+        private final double[] spec;
+
+        Key(double latMin, double lonMin, double latStep, double lonStep, int latCount, int lonCount) {
+            this.spec = new double[] {latMin, lonMin, latStep, lonStep, latCount, lonCount};
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(spec, ((Key) obj).spec);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(spec);
+        }
+    }
+}
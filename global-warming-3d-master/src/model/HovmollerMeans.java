@@ -0,0 +1,153 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * HovmollerMeans class holds the mean anomaly of each row (latitude) and of
+ * each column (longitude) of the grid, for each year : the data of the
+ * latitude/year and longitude/year diagrams.
+ *
+ * A row mean is the plain mean of the row's known anomalies, its cells
+ * having the same area. A column mean is weighted by the cosine of the
+ * cells' latitude, as the statistics. "NA" anomalies are skipped. The means
+ * are stored year by year, so the means of a year are contiguous, and the
+ * years are computed in parallel. Appended years are computed alone by
+ * {@link #update()}.
+ *
+ * @author adepreis
+ */
+public class HovmollerMeans {
+    private final AnomalyStore store;
+    private final GridSpec grid;
+    private final double[] rowWeights;
+
+    private int yearCount;
+    private float[] rowMeans = new float[0];
+    private float[] columnMeans = new float[0];
+
+    private HovmollerMeans(AnomalyStore store) {
+        this.store = store;
+        this.grid = store.getGridSpec();
+
+        rowWeights = new double[grid.getLatCount()];
+        for (int row = 0; row < rowWeights.length; row++) {
+            rowWeights[row] = Math.max(0, Math.cos(Math.toRadians(grid.getRowLat(row))));
+        }
+    }
+
+    /**
+     * Computes the means of every year of a store.
+     *
+     * @param store a complete store.
+     * @return the means of the store.
+     */
+    public static HovmollerMeans compute(AnomalyStore store) {
+        HovmollerMeans means = new HovmollerMeans(store);
+        means.update();
+        return means;
+    }
+
+    /**
+     * @param store a store.
+     * @return true if the means were computed for this store.
+     */
+    public boolean isBuiltFor(AnomalyStore store) {
+        return this.store == store;
+    }
+
+    /**
+     * Computes the years appended to the store since the last computation.
+     */
+    public void update() {
+        final int from = yearCount;
+        final int to = store.getYearCount();
+        if (to <= from) {
+            return;
+        }
+
+        rowMeans = Arrays.copyOf(rowMeans, to * grid.getLatCount());
+        columnMeans = Arrays.copyOf(columnMeans, to * grid.getLonCount());
+
+        IntStream.range(from, to).parallel().forEach(this::computeYear);
+        yearCount = to;
+    }
+
+    private void computeYear(int yearIndex) {
+        final int latCount = grid.getLatCount();
+        final int lonCount = grid.getLonCount();
+        final double[] columnSums = new double[lonCount];
+        final double[] columnWeights = new double[lonCount];
+
+        for (int row = 0; row < latCount; row++) {
+            final double weight = rowWeights[row];
+            double sum = 0;
+            int count = 0;
+
+            for (int column = 0; column < lonCount; column++) {
+                int cell = store.cellOfGridCell(grid.cellIndex(row, column));
+                float value = cell < 0 ? Float.NaN : store.get(cell, yearIndex);
+                if (!Float.isNaN(value)) {
+                    sum += value;
+                    count++;
+                    columnSums[column] += value * weight;
+                    columnWeights[column] += weight;
+                }
+            }
+            rowMeans[yearIndex * latCount + row] = count > 0 ? (float) (sum / count) : Float.NaN;
+        }
+
+        for (int column = 0; column < lonCount; column++) {
+            columnMeans[yearIndex * lonCount + column] = columnWeights[column] > 0
+                    ? (float) (columnSums[column] / columnWeights[column]) : Float.NaN;
+        }
+    }
+
+    public int getYearCount() { return yearCount; }
+
+    public GridSpec getGridSpec() { return grid; }
+
+    /**
+     * @param row a row of the grid, 0 being the southern one.
+     * @param yearIndex the index of a year.
+     * @return the mean anomaly of the row, Float.NaN if unknown.
+     */
+    public float getRowMean(int row, int yearIndex) {
+        return rowMeans[yearIndex * grid.getLatCount() + row];
+    }
+
+    /**
+     * @param column a column of the grid, 0 being the western one.
+     * @param yearIndex the index of a year.
+     * @return the area-weighted mean anomaly of the column, Float.NaN if unknown.
+     */
+    public float getColumnMean(int column, int yearIndex) {
+        return columnMeans[yearIndex * grid.getLonCount() + column];
+    }
+
+    /**
+     * Copies the row means of a year into an array.
+     *
+     * @param yearIndex the index of the year.
+     * @param dst the destination array, of at least getGridSpec().getLatCount() values.
+     * @return the destination array.
+     */
+    public float[] copyRowMeans(int yearIndex, float[] dst) {
+        final int latCount = grid.getLatCount();
+        System.arraycopy(rowMeans, yearIndex * latCount, dst, 0, latCount);
+        return dst;
+    }
+
+    /**
+     * Copies the column means of a year into an array.
+     *
+     * @param yearIndex the index of the year.
+     * @param dst the destination array, of at least getGridSpec().getLonCount() values.
+     * @return the destination array.
+     */
+    public float[] copyColumnMeans(int yearIndex, float[] dst) {
+        final int lonCount = grid.getLonCount();
+        System.arraycopy(columnMeans, yearIndex * lonCount, dst, 0, lonCount);
+        return dst;
+    }
+}
@@ -0,0 +1,86 @@
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * ModelMetrics class records the loading of the anomaly files : the
+ * duration of the last reading (or append) and the size of the loaded
+ * collection, on the heap. A memory-mapped collection only counts its
+ * heap part (see AnomalyStore.getHeapBytes()).
+ *
+ * The values are published as an MBean by {@link #register()}.
+ *
+ * @author adepreis
+ */
+public final class ModelMetrics implements ModelMetricsMBean {
+    public static final String OBJECT_NAME = "globalwarming3d:type=ModelMetrics";
+
+    private static final ModelMetrics INSTANCE = new ModelMetrics();
+
+    private volatile String lastSource = "";
+    private final AtomicLong loadCount = new AtomicLong();
+    private volatile long lastLoadNanos;
+    private volatile long heapBytes;
+    private volatile int cellCount;
+    private volatile int yearCount;
+
+    private ModelMetrics() {}
+
+    /**
+     * @return the metrics of the application.
+     */
+    public static ModelMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publishes the metrics in the platform MBean server, once.
+     */
+    public static synchronized void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Impossible de publier les métriques des données : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a reading of anomalies (loading thread).
+     *
+     * @param source the path of the file read.
+     * @param nanos the duration of the reading.
+     * @param store the collection after the reading.
+     */
+    static void recordLoad(String source, long nanos, AnomalyStore store) {
+        INSTANCE.lastSource = source;
+        INSTANCE.lastLoadNanos = nanos;
+        INSTANCE.heapBytes = store.getHeapBytes();
+        INSTANCE.cellCount = store.getCellCount();
+        INSTANCE.yearCount = store.getYearCount();
+        INSTANCE.loadCount.incrementAndGet();
+    }
+
+    @Override
+    public String getLastSource() { return lastSource; }
+
+    @Override
+    public long getLoadCount() { return loadCount.get(); }
+
+    @Override
+    public double getLastLoadMillis() { return lastLoadNanos / 1e6; }
+
+    @Override
+    public long getHeapBytes() { return heapBytes; }
+
+    @Override
+    public int getCellCount() { return cellCount; }
+
+    @Override
+    public int getYearCount() { return yearCount; }
+}
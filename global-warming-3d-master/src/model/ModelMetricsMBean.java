@@ -0,0 +1,21 @@
+package model;
+
+/**
+ * Management interface of the model metrics (see ModelMetrics).
+ *
+ * @author adepreis
+ */
+public interface ModelMetricsMBean {
+
+    String getLastSource();
+
+    long getLoadCount();
+
+    double getLastLoadMillis();
+
+    long getHeapBytes();
+
+    int getCellCount();
+
+    int getYearCount();
+}
@@ -0,0 +1,274 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * RegionIndex class answers in constant time the sum, the number of known
+ * anomalies and the mean over a lat/lon box and a period of years.
+ *
+ * It holds the prefix sums of the anomalies over the (year, row, column)
+ * grid : the sums, the area-weighted sums, the weights and the counts of
+ * the known anomalies, "NA" being skipped. A box is then given by the 8
+ * corners of the prefix sums (inclusion-exclusion).
+ *
+ * The index takes 28 bytes per grid cell and per year : it is built on
+ * first use. Appended years are added by {@link #update()}.
+ *
+ * @author adepreis
+ */
+public class RegionIndex {
+    private final AnomalyStore store;
+    private final GridSpec grid;
+    private final int rowSize;
+    private final int planeSize;
+    private final double[] rowWeights;
+
+    private int yearCount;
+    private double[] sums;
+    private double[] weightedSums;
+    private double[] weights;
+    private int[] counts;
+
+    private RegionIndex(AnomalyStore store) {
+        this.store = store;
+        this.grid = store.getGridSpec();
+        this.rowSize = grid.getLonCount() + 1;
+        this.planeSize = (grid.getLatCount() + 1) * rowSize;
+
+        // same weights as the statistics : the cosine of the row's latitude
+        rowWeights = new double[grid.getLatCount()];
+        for (int row = 0; row < rowWeights.length; row++) {
+            rowWeights[row] = Math.max(0, Math.cos(Math.toRadians(grid.getRowLat(row))));
+        }
+
+        // plane 0 : the sums before the first year
+        sums = new double[planeSize];
+        weightedSums = new double[planeSize];
+        weights = new double[planeSize];
+        counts = new int[planeSize];
+    }
+
+    /**
+     * Builds the index of every year of a store.
+     *
+     * @param store a complete store.
+     * @return the index of the store.
+     */
+    public static RegionIndex build(AnomalyStore store) {
+        RegionIndex index = new RegionIndex(store);
+        index.update();
+        return index;
+    }
+
+    /**
+     * @param store a store.
+     * @return true if the index was built for this store.
+     */
+    public boolean isBuiltFor(AnomalyStore store) {
+        return this.store == store;
+    }
+
+    public int getYearCount() { return yearCount; }
+
+    /**
+     * Indexes the years appended to the store since the last update.
+     */
+    public void update() {
+        final int from = yearCount;
+        final int to = store.getYearCount();
+        if (to <= from) {
+            return;
+        }
+
+        final int length = (to + 1) * planeSize;
+        sums = Arrays.copyOf(sums, length);
+        weightedSums = Arrays.copyOf(weightedSums, length);
+        weights = Arrays.copyOf(weights, length);
+        counts = Arrays.copyOf(counts, length);
+
+        // the 2D prefix sums of each year are independent...
+        IntStream.range(from, to).parallel().forEach(this::indexYear);
+
+        // ...then accumulated over the years
+        for (int y = from + 1; y <= to; y++) {
+            int plane = y * planeSize;
+            int previous = plane - planeSize;
+            for (int i = 0; i < planeSize; i++) {
+                sums[plane + i] += sums[previous + i];
+                weightedSums[plane + i] += weightedSums[previous + i];
+                weights[plane + i] += weights[previous + i];
+                counts[plane + i] += counts[previous + i];
+            }
+        }
+        yearCount = to;
+    }
+
+    /**
+     * Computes the 2D prefix sums of a year alone, in the plane following it.
+     */
+    private void indexYear(int yearIndex) {
+        final int plane = (yearIndex + 1) * planeSize;
+        final int lonCount = grid.getLonCount();
+
+        for (int row = 0; row < grid.getLatCount(); row++) {
+            final double weight = rowWeights[row];
+            double sum = 0, weightedSum = 0, weightSum = 0;
+            int count = 0;
+
+            for (int column = 0; column < lonCount; column++) {
+                int cell = store.cellOfGridCell(grid.cellIndex(row, column));
+                float value = cell < 0 ? Float.NaN : store.get(cell, yearIndex);
+                if (!Float.isNaN(value)) {
+                    sum += value;
+                    weightedSum += value * weight;
+                    weightSum += weight;
+                    count++;
+                }
+
+                // the row so far, plus the rows above it
+                int i = plane + (row + 1) * rowSize + column + 1;
+                sums[i] = sums[i - rowSize] + sum;
+                weightedSums[i] = weightedSums[i - rowSize] + weightedSum;
+                weights[i] = weights[i - rowSize] + weightSum;
+                counts[i] = counts[i - rowSize] + count;
+            }
+        }
+    }
+
+    /**
+     * @return the sum of the known anomalies of the box and the period.
+     */
+    public double getSum(float latMin, float latMax, float lonMin, float lonMax, int yearFrom, int yearTo) {
+        return sumOf(sums, new Box(latMin, latMax, lonMin, lonMax, yearFrom, yearTo));
+    }
+
+    /**
+     * @return the number of known anomalies of the box and the period.
+     */
+    public int getCount(float latMin, float latMax, float lonMin, float lonMax, int yearFrom, int yearTo) {
+        Box box = new Box(latMin, latMax, lonMin, lonMax, yearFrom, yearTo);
+        return box.isEmpty() ? 0 : (int) Math.round(box.sum(counts));
+    }
+
+    /**
+     * Computes the mean anomaly over a box and a period. A box whose
+     * minimum longitude is greater than its maximum one crosses the
+     * antimeridian.
+     *
+     * @param latMin the southern latitude of the box.
+     * @param latMax the northern latitude of the box.
+     * @param lonMin the western longitude of the box.
+     * @param lonMax the eastern longitude of the box.
+     * @param yearFrom the first year of the period.
+     * @param yearTo the last year of the period.
+     * @param areaWeighted true to weight the cells by their area.
+     * @return the mean of the known anomalies, Float.NaN if there is none.
+     */
+    public float getMean(float latMin, float latMax, float lonMin, float lonMax,
+                         int yearFrom, int yearTo, boolean areaWeighted) {
+        Box box = new Box(latMin, latMax, lonMin, lonMax, yearFrom, yearTo);
+        double total = areaWeighted ? sumOf(weightedSums, box) : sumOf(sums, box);
+        double weight = areaWeighted ? sumOf(weights, box) : (box.isEmpty() ? 0 : box.sum(counts));
+        return weight > 0 ? (float) (total / weight) : Float.NaN;
+    }
+
+    private static double sumOf(double[] prefix, Box box) {
+        return box.isEmpty() ? 0 : box.sum(prefix);
+    }
+
+    /**
+     * Rows, columns and years of a box, as prefix sums' bounds : the first
+     * included and the first excluded. Its columns are made of two ranges
+     * when it crosses the antimeridian.
+     */
+    private final class Box {
+        final int rowFrom, rowTo;
+        final int columnFrom, columnTo;
+        final int wrapFrom, wrapTo;
+        final int yearFrom, yearTo;
+
+        Box(float latMin, float latMax, float lonMin, float lonMax, int firstYear, int lastYear) {
+            rowFrom = firstIndex(latMin, grid.getLatOrigin(), grid.getLatStep(), grid.getLatCount());
+            rowTo = lastIndex(latMax, grid.getLatOrigin(), grid.getLatStep(), grid.getLatCount());
+
+            if (lonMin <= lonMax) {
+                columnFrom = columnIndex(lonMin, true);
+                columnTo = columnIndex(lonMax, false);
+                wrapFrom = wrapTo = 0;
+            } else {
+                columnFrom = columnIndex(lonMin, true);
+                columnTo = grid.getLonCount();
+                wrapFrom = 0;
+                wrapTo = columnIndex(lonMax, false);
+            }
+
+            yearFrom = firstYearIndex(firstYear);
+            yearTo = firstYearIndex(lastYear + 1);
+        }
+
+        boolean isEmpty() {
+            return rowFrom >= rowTo || yearFrom >= yearTo
+                    || (columnFrom >= columnTo && wrapFrom >= wrapTo);
+        }
+
+        double sum(double[] prefix) {
+            return sum(prefix, columnFrom, columnTo) + sum(prefix, wrapFrom, wrapTo);
+        }
+
+        double sum(int[] prefix) {
+            return sum(prefix, columnFrom, columnTo) + sum(prefix, wrapFrom, wrapTo);
+        }
+
+        private double sum(double[] p, int c0, int c1) {
+            if (c0 >= c1) {
+                return 0;
+            }
+            int y0 = yearFrom * planeSize, y1 = yearTo * planeSize;
+            int r0 = rowFrom * rowSize, r1 = rowTo * rowSize;
+            return (p[y1 + r1 + c1] - p[y1 + r0 + c1] - p[y1 + r1 + c0] + p[y1 + r0 + c0])
+                 - (p[y0 + r1 + c1] - p[y0 + r0 + c1] - p[y0 + r1 + c0] + p[y0 + r0 + c0]);
+        }
+
+        private double sum(int[] p, int c0, int c1) {
+            if (c0 >= c1) {
+                return 0;
+            }
+            int y0 = yearFrom * planeSize, y1 = yearTo * planeSize;
+            int r0 = rowFrom * rowSize, r1 = rowTo * rowSize;
+            return (p[y1 + r1 + c1] - p[y1 + r0 + c1] - p[y1 + r1 + c0] + p[y1 + r0 + c0])
+                 - (p[y0 + r1 + c1] - p[y0 + r0 + c1] - p[y0 + r1 + c0] + p[y0 + r0 + c0]);
+        }
+
+        private int columnIndex(float lon, boolean first) {
+            return first ? firstIndex(lon, grid.getLonOrigin(), grid.getLonStep(), grid.getLonCount())
+                         : lastIndex(lon, grid.getLonOrigin(), grid.getLonStep(), grid.getLonCount());
+        }
+    }
+
+    // first row (or column) whose center is after a coordinate
+    private static int firstIndex(float coord, double origin, double step, int count) {
+        double position = Math.ceil((coord - origin) / step - 1e-6);
+        return (int) Math.max(0, Math.min(count, position));
+    }
+
+    // row (or column) following the last one whose center is before a coordinate
+    private static int lastIndex(float coord, double origin, double step, int count) {
+        double position = Math.floor((coord - origin) / step + 1e-6) + 1;
+        return (int) Math.max(0, Math.min(count, position));
+    }
+
+    // index of the first indexed year from a year
+    private int firstYearIndex(int year) {
+        int low = 0, high = yearCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (store.getYear(middle) < year) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
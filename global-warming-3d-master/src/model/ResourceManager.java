@@ -1,12 +1,26 @@
 package model;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import util.ErrorManager;
+import util.SliceKernels;
 
 /**
  * ResourceManager class gather the model manipulated by the application's user.
@@ -15,15 +29,28 @@ import util.ErrorManager;
  * @author adepreis
  */
 public class ResourceManager {
+    // number of periods whose trends are kept
+    private static final int TREND_CACHE_SIZE = 32;
+    
     public int sampleNumber = 0;
     
     private float minTempAnomaly;
     private float maxTempAnomaly;
     
     private int minYear = LocalDate.MIN.getYear();
-    private int maxYear = LocalDate.MAX.getYear();
+    private final IntegerProperty maxYear = new SimpleIntegerProperty(LocalDate.MAX.getYear());
+    
+    private AnomalyStore anomalyGrid;
+    private GridPyramid gridPyramid;
+    private AnomalyStatistics statistics;
+    private RegionIndex regionIndex;
+    private HovmollerMeans hovmollerMeans;
     
-    private CoordAnomaliesMap anomalyGrid;
+    // trends of the last selected periods, the least recently used first,
+    // completed by the thread which requested them first
+    private final Map<List<Integer>, CompletableFuture<TrendMap>> trendMaps = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private final List<String> loadErrors = new ArrayList<>();
 
     /**
      * Constructs an empty ResourceManager.
@@ -50,24 +77,37 @@ public class ResourceManager {
     /**
      * Retrieve an anomaly according to it's coordinates and year.
      * 
-     * @param lat an integer corresponding to the searched anomaly's latitude.
-     * @param lon an integer corresponding to the searched anomaly's longitude.
+     * @param lat a float corresponding to the searched anomaly's latitude.
+     * @param lon a float corresponding to the searched anomaly's longitude.
      * @param year an integer corresponding to the searched anomaly's year.
      * @return a float corresponding to the searched anomaly's value.
      */
-    public float getAnomaly(int lat, int lon, int year) {
-        return anomalyGrid.getAnomaly(lat, lon, year);
+    public float getAnomaly(float lat, float lon, int year) {
+        int cell = anomalyGrid.cellIndexOf(lat, lon);
+        int yearIndex = anomalyGrid.yearIndexOf(year);
+        
+        if (cell < 0 || yearIndex < 0) {
+            return Float.NaN;
+        }
+        return anomalyGrid.get(cell, yearIndex);
     }
     
     /**
      * Retrieve all anomaly values by coordinates.
      * 
-     * @param lat an integer corresponding to the latitude of the anomalies we're looking for.
-     * @param lon an integer corresponding to the longitude of the anomalies we're looking for.
+     * @param lat a float corresponding to the latitude of the anomalies we're looking for.
+     * @param lon a float corresponding to the longitude of the anomalies we're looking for.
      * @return  
      */
-    public float[] getAllYearsFromCoord(int lat, int lon) {
-        return anomalyGrid.getAllYearAnomalyByPosition(lat, lon);
+    public float[] getAllYearsFromCoord(float lat, float lon) {
+        float[] list = new float[anomalyGrid.getYearCount()];
+        int cell = anomalyGrid.cellIndexOf(lat, lon);
+        
+        if (cell < 0) {
+            Arrays.fill(list, Float.NaN);
+            return list;
+        }
+        return anomalyGrid.copyCellSeries(cell, list);
     }
 
     /**
@@ -77,7 +117,168 @@ public class ResourceManager {
      * @return  
      */
     public float[] getAllCoordFromYear(int year) {
-        return anomalyGrid.getAllCoordAnomalyByYear(year);
+        float[] list = new float[anomalyGrid.getCellCount()];
+        int yearIndex = anomalyGrid.yearIndexOf(year);
+        
+        if (yearIndex < 0) {
+            Arrays.fill(list, Float.NaN);
+            return list;
+        }
+        return anomalyGrid.copyYearSlice(yearIndex, list);
+    }
+    
+    /**
+     * Retrieve the errors met during the last .csv reading : each rejected
+     * row (wrong column count or invalid value) is reported.
+     * 
+     * @return an unmodifiable list of error messages.
+     */
+    public List<String> getLoadErrors() {
+        return Collections.unmodifiableList(loadErrors);
+    }
+    
+    /**
+     * Retrieve the dense store holding every anomaly of the collection.
+     * 
+     * @return the AnomalyStore of the collection.
+     */
+    public AnomalyStore getAnomalyStore() {
+        return anomalyGrid;
+    }
+    
+    /**
+     * Retrieve the anomalies at several resolutions, built on first use.
+     * 
+     * @return the GridPyramid of the collection.
+     */
+    public GridPyramid getGridPyramid() {
+        if (gridPyramid == null || !gridPyramid.isBuiltFor(anomalyGrid)) {
+            gridPyramid = new GridPyramid(anomalyGrid);
+        }
+        return gridPyramid;
+    }
+    
+    /**
+     * Retrieve the summary statistics of each year : global and zonal means,
+     * min/max and coverage.
+     * 
+     * @return the AnomalyStatistics of the collection.
+     */
+    public AnomalyStatistics getStatistics() {
+        return statistics;
+    }
+    
+    /**
+     * Retrieve the index of the box-and-period sums, built on first use.
+     * 
+     * @return the RegionIndex of the collection.
+     */
+    public RegionIndex getRegionIndex() {
+        if (regionIndex == null || !regionIndex.isBuiltFor(anomalyGrid)) {
+            regionIndex = RegionIndex.build(anomalyGrid);
+        }
+        return regionIndex;
+    }
+    
+    /**
+     * Retrieve the mean anomaly of each latitude and each longitude of the
+     * grid for each year, computed on first use.
+     * 
+     * @return the HovmollerMeans of the collection.
+     */
+    public HovmollerMeans getHovmollerMeans() {
+        if (hovmollerMeans == null || !hovmollerMeans.isBuiltFor(anomalyGrid)) {
+            hovmollerMeans = HovmollerMeans.compute(anomalyGrid);
+        }
+        return hovmollerMeans;
+    }
+    
+    /**
+     * Retrieve the warming rate of each cell over a period, computed on the
+     * first request of the period. Can be called from any thread : the
+     * trends are computed out of the cache's lock, the other threads asking
+     * for the same period waiting for them.
+     * 
+     * @param yearFrom the first year of the period.
+     * @param yearTo the last year of the period.
+     * @return the TrendMap of the period.
+     */
+    public TrendMap getTrendMap(int yearFrom, int yearTo) {
+        List<Integer> period = Arrays.asList(yearFrom, yearTo);
+        CompletableFuture<TrendMap> trendMap;
+        AnomalyStore store = null;
+        
+        synchronized (trendMaps) {
+            trendMap = trendMaps.get(period);
+            if (trendMap == null) {
+                trendMap = new CompletableFuture<>();
+                trendMaps.put(period, trendMap);
+                store = anomalyGrid;
+                
+                if (trendMaps.size() > TREND_CACHE_SIZE) {
+                    trendMaps.remove(trendMaps.keySet().iterator().next());
+                }
+            }
+        }
+        
+        // This thread computes the period
+        if (store != null) {
+            try {
+                trendMap.complete(TrendMap.compute(store, yearFrom, yearTo));
+            } catch (RuntimeException | Error e) {
+                // the waiting threads fail too, the next request computes again
+                synchronized (trendMaps) {
+                    trendMaps.remove(period, trendMap);
+                }
+                trendMap.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return trendMap.join();
+    }
+    
+    /**
+     * Retrieve the area-weighted mean anomaly of a lat/lon box over a period.
+     * 
+     * @param latMin the southern latitude of the box.
+     * @param latMax the northern latitude of the box.
+     * @param lonMin the western longitude of the box.
+     * @param lonMax the eastern longitude of the box.
+     * @param yearFrom the first year of the period.
+     * @param yearTo the last year of the period.
+     * @return the mean anomaly, Float.NaN if it is unknown.
+     */
+    public float getRegionMean(float latMin, float latMax, float lonMin, float lonMax, int yearFrom, int yearTo) {
+        return getRegionIndex().getMean(latMin, latMax, lonMin, lonMax, yearFrom, yearTo, true);
+    }
+    
+    /**
+     * Retrieve the area-weighted mean anomaly of a lat/lon box for each year.
+     * 
+     * @param latMin the southern latitude of the box.
+     * @param latMax the northern latitude of the box.
+     * @param lonMin the western longitude of the box.
+     * @param lonMax the eastern longitude of the box.
+     * @return an array of mean anomalies, Float.NaN if unknown.
+     */
+    public float[] getRegionSeries(float latMin, float latMax, float lonMin, float lonMax) {
+        RegionIndex index = getRegionIndex();
+        float[] means = new float[index.getYearCount()];
+        
+        for (int i = 0; i < means.length; i++) {
+            int year = anomalyGrid.getYear(i);
+            means[i] = index.getMean(latMin, latMax, lonMin, lonMax, year, year, true);
+        }
+        return means;
+    }
+    
+    /**
+     * Retrieve the grid on which the anomalies are located.
+     * 
+     * @return the GridSpec of the collection.
+     */
+    public GridSpec getGridSpec() {
+        return anomalyGrid.getGridSpec();
     }
     
     /**
@@ -86,94 +287,389 @@ public class ResourceManager {
      * @param path a string corresponding to the .csv file path.
      */
     public void readTemperatureFile(String path) {
+        readTemperatureFile(path, false);
+    }
+    
+    /**
+     * Fill the ResourceManager current instance from a parsed .csv file.
+     * In parallel mode, the file is split into chunks of whole lines which
+     * are parsed on the common fork-join pool ; the result is the same as
+     * the sequential reading.
+     * 
+     * @param path a string corresponding to the .csv file path.
+     * @param parallel true to parse the file on several threads.
+     */
+    public void readTemperatureFile(String path, boolean parallel) {
+        try {
+            long start = System.nanoTime();
+            InputStream is = this.getClass().getResourceAsStream(path);
+            
+            if (is == null) {
+                throw new IOException("Resource " + path + " not found.");
+            }
+            
+            if (parallel) {
+                readTemperatureDataInParallel(is, path);
+            } else {
+                readTemperatureData(is, path);
+            }
+            ModelMetrics.recordLoad(path, System.nanoTime() - start, anomalyGrid);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            ErrorManager.displayLoadWarning(path);
+        } 
+        
+    }
+    
+    /**
+     * Fill the ResourceManager current instance from a .csv stream.
+     * 
+     * @param is the stream of the .csv file, closed at the end of the reading.
+     * @param path a string corresponding to the .csv file path.
+     * @throws IOException if the stream can't be read.
+     */
+    void readTemperatureData(InputStream is, String path) throws IOException {
         
         // Clear all attribute before updating them :
+        clear();
+        
+        try (CsvLineReader reader = new CsvLineReader(is)) {
+            
+            int[] years = reader.nextLine()
+                    ? parseHeader(new String(reader.getBuffer(), reader.getLineStart(),
+                            reader.getLineEnd() - reader.getLineStart(), StandardCharsets.UTF_8))
+                    : parseHeader(null);
+            
+            if (years == null) {
+                return;
+            }
+            
+            System.out.println("[INFO] The file at " + path + " contain " + years.length + " columns.");
+            
+            AnomalyStore grid = new AnomalyStore(years);
+            AnomalyTokenizer tokenizer = new AnomalyTokenizer();
+            float[] yearAno = new float[years.length];
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            
+            // Read the file line by line, straight from the reused buffer
+            while (reader.nextLine())
+            {
+                if (reader.getLineEnd() == reader.getLineStart()) {
+                    continue;       // skip blank lines
+                }
+                
+                if (!tokenizer.parseRow(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(), yearAno)) {
+                    reportRowError(reader.getLineNumber(), tokenizer, years.length);
+                    continue;
+                }
+                
+                for (int i = 0; i < years.length; i++) {
+                    float value = yearAno[i];
+                    
+                    // NaN comparisons are always false : "NA" are ignored
+                    min = value < min ? value : min;
+                    max = value > max ? value : max;
+                }
+                
+                grid.addCell(tokenizer.getLat(), tokenizer.getLon(), yearAno);
+            }
+            
+            grid.complete();
+            update(grid, min, max);
+        }
+    }
+    
+    /**
+     * Fill the ResourceManager current instance from a .csv stream, parsed
+     * in parallel by a {@link ChunkedCsvReader}.
+     * 
+     * @param is the stream of the .csv file, closed at the end of the reading.
+     * @param path a string corresponding to the .csv file path.
+     * @throws IOException if the stream can't be read.
+     */
+    void readTemperatureDataInParallel(InputStream is, String path) throws IOException {
+        clear();
+        
+        byte[] bytes;
+        try (InputStream in = is) {
+            bytes = in.readAllBytes();
+        }
+        
+        ChunkedCsvReader reader = new ChunkedCsvReader(bytes);
+        
+        if (reader.read()) {
+            System.out.println("[INFO] The file at " + path + " contain " + reader.getStore().getYearCount() + " columns.");
+            
+            int[] errorLines = reader.getErrorLines();
+            for (int i = 0; i < errorLines.length; i++) {
+                reportRowError(errorLines[i], reader.getErrorColumnCounts()[i],
+                        reader.getErrorInvalidColumns()[i], reader.getStore().getYearCount());
+            }
+            
+            update(reader.getStore(), reader.getMinAnomaly(), reader.getMaxAnomaly());
+        }
+    }
+    
+    private void reportRowError(int line, AnomalyTokenizer tokenizer, int yearCount) {
+        reportRowError(line, tokenizer.getColumnCount(), tokenizer.getInvalidColumn(), yearCount);
+    }
+    
+    private void reportRowError(int line, int columnCount, int invalidColumn, int yearCount) {
+        String error = invalidColumn >= 0
+                ? "Ligne " + line + " : valeur invalide en colonne " + (invalidColumn + 1) + ", ligne ignorée."
+                : "Ligne " + line + " : " + columnCount + " colonnes au lieu de " + (yearCount + 2) + ", ligne ignorée.";
+        
+        System.err.println(error);
+        loadErrors.add(error);
+    }
+    
+    /**
+     * Parses the header line of a .csv file : "lat","lon", then the years.
+     * 
+     * @param line the first line of the file.
+     * @return the years of the header, or null if the header isn't valid.
+     */
+    static int[] parseHeader(String line) {
+        if (line == null || line.length() < 2) {
+            System.err.println("Le fichier ne contient pas d'en-tête.");
+            return null;
+        }
+        
+        line = line.substring(1, line.length()-1);     // skip first and last "
+        
+        String[] data = line.split("\",\"", -1);
+        
+        if (data.length < 3 || !data[0].equals("lat") || !data[1].equals("lon")) {
+            System.err.println("Les 2 premières colonnes ne correspondent pas au format de fichier attendu.");
+            // TODO : throw exception here
+            return null;
+        }
+        
+        // Remove first 2 strings..
+        data = Arrays.copyOfRange(data, 2, data.length);
+        // and cast data to an int array (list of years of the 1st line) :
+        return Arrays.stream(data).mapToInt(Integer::parseInt).toArray();
+    }
+    
+    private void clear() {
+        loadErrors.clear();
         sampleNumber = 0;
-        minTempAnomaly = Float.MAX_VALUE;
-        maxTempAnomaly = Float.MIN_VALUE;
-        anomalyGrid = new CoordAnomaliesMap();
+        minTempAnomaly = Float.NaN;
+        maxTempAnomaly = Float.NaN;
+        anomalyGrid = new AnomalyStore(new int[0]);
+    }
+    
+    private void update(AnomalyStore grid, float min, float max) {
+        anomalyGrid = grid;
+        minTempAnomaly = min;
+        maxTempAnomaly = max;
         
+        // Only the appended years are computed for the same store
+        if (statistics == null || !statistics.isBuiltFor(grid)) {
+            statistics = AnomalyStatistics.compute(grid);
+        } else {
+            statistics.update();
+        }
+        
+        // The trends of a period may include the appended years
+        synchronized (trendMaps) {
+            trendMaps.clear();
+        }
+        
+        // The index is built on first use, then follows the appended years
+        if (regionIndex != null && regionIndex.isBuiltFor(grid)) {
+            regionIndex.update();
+        }
+        if (hovmollerMeans != null && hovmollerMeans.isBuiltFor(grid)) {
+            hovmollerMeans.update();
+        }
+        
+        // Udpate class attributes
+        sampleNumber = grid.getYearCount();
+        if (sampleNumber > 0) {
+            minYear = grid.getYear(0);
+            maxYear.set(grid.getYear(sampleNumber-1));
+        }
+    }
+    
+    /**
+     * Appends the new years of a .csv file to the collection, without
+     * reloading it. The file has the usual layout ("lat","lon", then the
+     * years) : only the columns after the current last year are read, so it
+     * can either be a delta or the whole republished file.
+     * The min/max anomalies and the last year are updated in place, so this
+     * method must be called on the thread observing maxYearProperty().
+     * 
+     * @param path a string corresponding to the .csv file path.
+     * @return the number of appended years.
+     */
+    public int appendTemperatureFile(String path) {
         try {
+            long start = System.nanoTime();
             InputStream is = this.getClass().getResourceAsStream(path);
-            InputStreamReader isr = new InputStreamReader(is);
-            BufferedReader bufRead = new BufferedReader(isr);
             
-            //bufRead.read();     // skip first "\""
-            String line = bufRead.readLine();
-            line = line.substring(1, line.length()-1);     // skip first and last "
+            if (is == null) {
+                throw new IOException("Resource " + path + " not found.");
+            }
             
-            String[] data = line.split("\",\"", -1);
+            int appended = appendTemperatureData(is);
+            ModelMetrics.recordLoad(path, System.nanoTime() - start, anomalyGrid);
+            return appended;
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            ErrorManager.displayLoadWarning(path);
+            return 0;
+        }
+    }
+    
+    /**
+     * Appends the new years of a .csv file of the file system (e.g. dropped
+     * on the window) to the collection, as appendTemperatureFile(String).
+     * 
+     * @param file the .csv file.
+     * @return the number of appended years.
+     * @throws IOException if the file can't be read.
+     */
+    public int appendTemperatureFile(File file) throws IOException {
+        long start = System.nanoTime();
+        int appended = appendTemperatureData(new FileInputStream(file));
+        ModelMetrics.recordLoad(file.getPath(), System.nanoTime() - start, anomalyGrid);
+        return appended;
+    }
+    
+    /**
+     * Appends the new years of a .csv stream to the collection.
+     * 
+     * @param is the stream of the .csv file, closed at the end of the reading.
+     * @return the number of appended years.
+     * @throws IOException if the stream can't be read.
+     */
+    int appendTemperatureData(InputStream is) throws IOException {
+        loadErrors.clear();
+        
+        try (CsvLineReader reader = new CsvLineReader(is)) {
             
+            int[] fileYears = reader.nextLine()
+                    ? parseHeader(new String(reader.getBuffer(), reader.getLineStart(),
+                            reader.getLineEnd() - reader.getLineStart(), StandardCharsets.UTF_8))
+                    : parseHeader(null);
             
-            if (!data[0].equals("lat") || !data[1].equals("lon")) {
-                System.err.println("Les 2 premières colonnes ne correspondent pas au format de fichier attendu.");
-                // TODO : throw exception here
-                return;
+            if (fileYears == null) {
+                return 0;
             }
             
-            // Remove first 2 strings..
-            data = Arrays.copyOfRange(data, 2, data.length);
-            // and cast data to an int array (list of years of the 1st line) :
-            int[] years = Arrays.stream(data).mapToInt(Integer::parseInt).toArray();
+            // Columns of the file after the current last year
+            int firstColumn = 0;
+            while (firstColumn < fileYears.length
+                    && sampleNumber > 0 && fileYears[firstColumn] <= getMaxYear()) {
+                firstColumn++;
+            }
             
+            int[] newYears = Arrays.copyOfRange(fileYears, firstColumn, fileYears.length);
             
-            System.out.println("[INFO] The file at " + path + " contain " + years.length + " columns.");
+            if (newYears.length == 0) {
+                return 0;
+            }
             
-            // Udpate class attributes
-            sampleNumber = years.length;
-            minYear = years[0];
-            maxYear = years[years.length-1];
+            // The new years stay unseen by the readers until they are filled
+            AnomalyStore.YearAppend append = anomalyGrid.appendYears(newYears);
+            int firstIndex = append.getFirstIndex();
             
-            data = null;
+            AnomalyTokenizer tokenizer = new AnomalyTokenizer();
+            float[] yearAno = new float[fileYears.length];
+            float min = sampleNumber > 0 ? minTempAnomaly : Float.MAX_VALUE;
+            float max = sampleNumber > 0 ? maxTempAnomaly : -Float.MAX_VALUE;
             
-            // Read the file line by line
-            while ((line = bufRead.readLine()) != null)
+            while (reader.nextLine())
             {
-                // Get data from the line
-                data = line.split(",");
-                
-                int lat = Integer.parseInt(data[0]);
-                int lon = Integer.parseInt(data[1]);
+                if (reader.getLineEnd() == reader.getLineStart()) {
+                    continue;       // skip blank lines
+                }
                 
-                // Remove first 2 int..
-                data = Arrays.copyOfRange(data, 2, data.length);
+                if (!tokenizer.parseRow(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(), yearAno)) {
+                    reportRowError(reader.getLineNumber(), tokenizer, fileYears.length);
+                    continue;
+                }
                 
-                AnnualAnomaliesMap yearAno = new AnnualAnomaliesMap();
+                int cell = anomalyGrid.cellIndexOf(tokenizer.getLat(), tokenizer.getLon());
                 
-                for (int i = 0; i < years.length; i++) {
-                    // Float.NaN for the "NA" anomalies
-                    float value = data[i].equals("NA")
-                            ? Float.NaN
-                            // save value with 3 digits precision
-                            : (float)Math.round(Float.parseFloat(data[i]) * 1000.f) / 1000.f;
-                    
-                    if(value < minTempAnomaly) {
-                        minTempAnomaly = value;         // update min temperature
-                    } else if(value > maxTempAnomaly) {
-                        maxTempAnomaly = value;         // update max temperature
-                    }
-                    
-                    yearAno.put(years[i], value);
+                if (cell < 0) {
+                    String error = "Ligne " + reader.getLineNumber() + " : zone inconnue, ligne ignorée.";
+                    System.err.println(error);
+                    loadErrors.add(error);
+                    continue;
                 }
                 
-                anomalyGrid.put(new GeoCoord(lat, lon), yearAno);
+                min = Math.min(min, SliceKernels.min(yearAno, firstColumn, fileYears.length));
+                max = Math.max(max, SliceKernels.max(yearAno, firstColumn, fileYears.length));
+                
+                for (int i = 0; i < newYears.length; i++) {
+                    append.set(cell, firstIndex + i, yearAno[firstColumn + i]);
+                }
             }
             
-            bufRead.close();
-            isr.close();
-            is.close();            
-        } catch (IOException e) {
+            append.publish();
+            update(anomalyGrid, min, max);
+            
+            System.out.println("[INFO] " + newYears.length + " years appended, up to " + getMaxYear() + ".");
+            
+            return newYears.length;
+        }
+    }
+    
+    /**
+     * Fill the ResourceManager current instance from a binary anomaly file
+     * (see {@link AnomalyFileConverter}).
+     * When the file lies on the file system, its values are memory-mapped :
+     * they aren't copied on the heap but paged on demand.
+     * 
+     * @param path a string corresponding to the binary file path.
+     */
+    public void readAnomalyFile(String path) {
+        try {
+            long start = System.nanoTime();
+            URL url = this.getClass().getResource(path);
+            
+            if (url == null) {
+                throw new IOException("Resource " + path + " not found.");
+            }
+            
+            AnomalyFile file;
+            
+            if ("file".equals(url.getProtocol())) {
+                file = AnomalyFile.map(Paths.get(url.toURI()));
+            } else {
+                try (InputStream is = url.openStream()) {
+                    file = AnomalyFile.read(is);
+                }
+            }
+            
+            update(file.getStore(), file.getMinAnomaly(), file.getMaxAnomaly());
+            ModelMetrics.recordLoad(path, System.nanoTime() - start, anomalyGrid);
+            
+            System.out.println("[INFO] The file at " + path + " contain " + sampleNumber + " columns.");
+        } catch (IOException | URISyntaxException e) {
             System.out.println(e.getMessage());
             ErrorManager.displayLoadWarning(path);
-        } 
-        
+        }
     }
+    
 
     public int getMinYear() {
         return minYear;
     }
 
     public int getMaxYear() {
+        return maxYear.get();
+    }
+    
+    /**
+     * The last year of the collection grows when new years are appended.
+     * 
+     * @return a read-only property of the last year of the collection.
+     */
+    public ReadOnlyIntegerProperty maxYearProperty() {
         return maxYear;
     }
 
@@ -181,6 +677,6 @@ public class ResourceManager {
     public String toString() {
         return "ResourceManager{" + "nbAnnees=" + sampleNumber +
                 ", minTempAnomaly=" + minTempAnomaly + ", maxTempAnomaly=" + maxTempAnomaly +
-                ", minYear=" + minYear + ", maxYear=" + maxYear + '}';
+                ", minYear=" + minYear + ", maxYear=" + getMaxYear() + '}';
     }
 }
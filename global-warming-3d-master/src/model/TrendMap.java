@@ -0,0 +1,122 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * TrendMap class holds the warming rate of each cell of a store over a
+ * period : the slope of the least-squares line of its anomalies, in °C per
+ * decade.
+ *
+ * "NA" anomalies are left out of the regression. A cell whose period has
+ * too few known anomalies has no trend. The cells are computed in parallel.
+ *
+ * @author adepreis
+ */
+public class TrendMap {
+    // a trend needs this fraction of the period's years to be known...
+    private static final float MIN_COVERAGE = 2.f / 3;
+    // ...and at least this number of them
+    private static final int MIN_KNOWN_YEARS = 3;
+
+    private final AnomalyStore store;
+    private final int yearFrom;
+    private final int yearTo;
+    private final float[] trends;
+    private final float minTrend;
+    private final float maxTrend;
+
+    private TrendMap(AnomalyStore store, int yearFrom, int yearTo) {
+        this.store = store;
+        this.yearFrom = yearFrom;
+        this.yearTo = yearTo;
+
+        // indexes of the period's years in the store
+        int from = 0;
+        while (from < store.getYearCount() && store.getYear(from) < yearFrom) {
+            from++;
+        }
+        int to = from;
+        while (to < store.getYearCount() && store.getYear(to) <= yearTo) {
+            to++;
+        }
+        final int first = from;
+        final int last = to;
+        final int minKnown = Math.max(MIN_KNOWN_YEARS, (int) Math.ceil(MIN_COVERAGE * (last - first)));
+
+        trends = new float[store.getCellCount()];
+        IntStream.range(0, trends.length).parallel()
+                 .forEach(cell -> trends[cell] = trendOf(cell, first, last, minKnown));
+
+        float min = Float.NaN, max = Float.NaN;
+        for (float trend : trends) {
+            if (!Float.isNaN(trend)) {
+                min = Float.isNaN(min) ? trend : Math.min(min, trend);
+                max = Float.isNaN(max) ? trend : Math.max(max, trend);
+            }
+        }
+        minTrend = min;
+        maxTrend = max;
+    }
+
+    /**
+     * Computes the trend of every cell of a store over a period.
+     *
+     * @param store a complete store.
+     * @param yearFrom the first year of the period.
+     * @param yearTo the last year of the period.
+     * @return the trends of the period.
+     */
+    public static TrendMap compute(AnomalyStore store, int yearFrom, int yearTo) {
+        return new TrendMap(store, yearFrom, yearTo);
+    }
+
+    // slope of the anomalies over the years, from the cell's series
+    private float trendOf(int cell, int first, int last, int minKnown) {
+        if (!store.hasData(cell)) {
+            return Float.NaN;
+        }
+
+        // years are counted from the period's start, for the precision
+        int n = 0;
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int y = first; y < last; y++) {
+            float anomaly = store.get(cell, y);
+            if (Float.isNaN(anomaly)) {
+                continue;
+            }
+            double x = store.getYear(y) - yearFrom;
+            n++;
+            sumX += x;
+            sumY += anomaly;
+            sumXX += x * x;
+            sumXY += x * anomaly;
+        }
+
+        double variance = n * sumXX - sumX * sumX;
+        if (n < minKnown || variance <= 0) {
+            return Float.NaN;
+        }
+        return (float) (10 * (n * sumXY - sumX * sumY) / variance);
+    }
+
+    public int getYearFrom() { return yearFrom; }
+
+    public int getYearTo() { return yearTo; }
+
+    /**
+     * @param cell the index of a store cell.
+     * @return the trend of the cell in °C/decade, Float.NaN if unknown.
+     */
+    public float getTrend(int cell) { return trends[cell]; }
+
+    /**
+     * Returns a copy of the trends.
+     *
+     * @return the trend of each store cell in °C/decade, Float.NaN if unknown.
+     */
+    public float[] getTrends() { return trends.clone(); }
+
+    public float getMinTrend() { return minTrend; }
+
+    public float getMaxTrend() { return maxTrend; }
+}
@@ -0,0 +1,88 @@
+package util;
+
+import javafx.geometry.Point3D;
+import model.ResourceManager;
+
+/**
+ * AnomalyOverlay interface is implemented by the nodes displaying the
+ * anomalies of a year on the globe.
+ *
+ * Displaying a year is split in two stages : frameOf() computes the render
+ * payload of the year and can be called from any thread, applyFrame()
+ * writes it in the scene graph and must be called from the FX thread.
+ * Only the cells visible from the viewpoint are written, the others being
+ * updated when they rotate into view.
+ *
+ * @param <T> the type of the frames.
+ * @author Antonin
+ */
+public interface AnomalyOverlay<T> {
+
+    /**
+     * @param rm a collection of anomalies.
+     * @return true if the overlay was built for the collection's store.
+     */
+    boolean isBuiltFor(ResourceManager rm);
+
+    /**
+     * Sets the anomalies range used by the normalisation. The cached frames
+     * are discarded if the range changed or if years were appended.
+     *
+     * @param anoMin the minimum anomaly of the collection.
+     * @param anoMax the maximum anomaly of the collection.
+     */
+    void setRange(float anoMin, float anoMax);
+
+    /**
+     * Returns the frame of a year, from the cache or computed by the calling
+     * thread.
+     *
+     * @param year the year to display.
+     * @return the frame of the year.
+     */
+    T frameOf(int year);
+
+    /**
+     * Returns the frame between a year and the following one, the anomalies
+     * being linearly interpolated. Can be called from any thread.
+     *
+     * @param year the year before the position.
+     * @param fraction the position toward the following year (0 to 1).
+     * @return the frame of the position.
+     */
+    T frameOf(int year, float fraction);
+
+    /**
+     * Writes a frame in the overlay's mesh (FX thread).
+     *
+     * @param frame a frame returned by frameOf().
+     */
+    void applyFrame(T frame);
+
+    /**
+     * Sets the camera position (FX thread). The cells which rotated into
+     * view are updated with the last applied frame.
+     *
+     * @param viewpoint the camera position in the globe's coordinates,
+     * null to display every cell.
+     */
+    void setViewpoint(Point3D viewpoint);
+
+    /**
+     * Computes in background the years following the given one, in the
+     * direction of the last year change.
+     *
+     * @param year the displayed year.
+     */
+    void prefetch(int year);
+
+    /**
+     * Displays a year synchronously (FX thread).
+     *
+     * @param year the year to display.
+     */
+    default void show(int year) {
+        applyFrame(frameOf(year));
+        prefetch(year);
+    }
+}
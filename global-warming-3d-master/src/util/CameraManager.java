@@ -1,5 +1,8 @@
 package util;
 
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.DoubleProperty;
+import javafx.geometry.Point3D;
 import javafx.event.EventHandler;
 import javafx.scene.*;
 import javafx.scene.input.KeyEvent;
@@ -60,6 +63,47 @@ public class CameraManager {
         handleMouse(mainRoot, root);
     }
 
+    /**
+     * Returns the translateZ property of the camera, changed by zooming.
+     *
+     * @return a negative distance along the camera's axis.
+     */
+    public DoubleProperty zoomProperty() {
+        return camera.translateZProperty();
+    }
+
+    /**
+     * @return the distance between the camera and the globe's center.
+     */
+    public double getDistance() {
+        return -camera.getTranslateZ();
+    }
+
+    /**
+     * Returns the camera position in the coordinates of the root group,
+     * i.e. of the globe.
+     *
+     * @return the position of the camera.
+     */
+    public Point3D getPosition() {
+        Point3D position = camera.localToParent(Point3D.ZERO);
+        position = cameraXform2.localToParent(position);
+        return cameraXform.localToParent(position);
+    }
+
+    /**
+     * Adds a listener notified when the camera moves (rotation or zoom).
+     *
+     * @param listener the listener to add.
+     */
+    public void addViewListener(InvalidationListener listener) {
+        rx.angleProperty().addListener(listener);
+        ry.angleProperty().addListener(listener);
+        camera.translateZProperty().addListener(listener);
+        cameraXform2.translateXProperty().addListener(listener);
+        cameraXform2.translateYProperty().addListener(listener);
+    }
+
     private void handleMouse(Node mainRoot, final Node root) {
 
         mainRoot.setOnMousePressed(new EventHandler<MouseEvent>() {
@@ -86,15 +130,12 @@ public class CameraManager {
 
                 double modifier = 1.0;
 
-                if (me.isControlDown()) {
-                    modifier = CONTROL_MULTIPLIER;
-                }
 //                if (me.isShiftDown()) {
 //                    modifier = SHIFT_MULTIPLIER;
 //                }
 
-                // Rotation feature
-                if (me.isPrimaryButtonDown()) {
+                // Rotation feature ('Ctrl+Drag' selects a zone instead)
+                if (me.isPrimaryButtonDown() && !me.isControlDown()) {
                     ry.setAngle(ry.getAngle() + mouseDeltaX * modifier * ROTATION_SPEED);
                     rx.setAngle(rx.getAngle() - mouseDeltaY * modifier * ROTATION_SPEED);
                 }
@@ -0,0 +1,182 @@
+package util;
+
+import javafx.scene.paint.Color;
+
+/**
+ * ColorMap class maps anomalies to a palette of quantised colors.
+ *
+ * The palette index 0 is reserved for the cells without anomaly, the
+ * following indexes are the levels, from the lowest anomaly to the highest.
+ * A lookup table gives the level of any normalised anomaly, so coloring a
+ * cell costs a few arithmetic operations and one array index. The globe
+ * overlays and the legend (see view.Scale) read the same palette and lookup
+ * table.
+ *
+ * A diverging map normalises positive anomalies by the collection's
+ * maximum and negative ones by its minimum, a null anomaly having no
+ * color. A sequential map spreads the anomalies from the minimum to the
+ * maximum.
+ *
+ * @author Antonin
+ */
+public final class ColorMap {
+    // resolution of the lookup table over the normalised anomalies [0, 1]
+    private static final int LUT_SIZE = 1024;
+
+    public static final int NO_ANOMALY_INDEX = 0;
+
+    private final boolean diverging;
+    private final Color[] palette;
+    private final byte[] lut;
+
+    private ColorMap(boolean diverging, Color[] levelColors) {
+        this.diverging = diverging;
+
+        palette = new Color[levelColors.length + 1];
+        palette[NO_ANOMALY_INDEX] = Color.TRANSPARENT;
+        System.arraycopy(levelColors, 0, palette, 1, levelColors.length);
+
+        // each entry takes the level of its middle
+        final int levels = levelColors.length;
+        lut = new byte[LUT_SIZE];
+        for (int k = 0; k < LUT_SIZE; k++) {
+            double u = (k + 0.5) / LUT_SIZE;
+            lut[k] = (byte) (1 + Math.min(levels - 1, (int) (u * levels)));
+        }
+    }
+
+    /**
+     * Creates a map with as many levels for the negative anomalies as for
+     * the positive ones.
+     *
+     * @param levelsPerSide the number of levels of each sign (1 to 63).
+     * @param coldColors the colors of the negative anomalies, from the
+     * weakest to the strongest.
+     * @param warmColors the colors of the positive anomalies, from the
+     * weakest to the strongest.
+     * @return a diverging ColorMap.
+     */
+    public static ColorMap diverging(int levelsPerSide, Color[] coldColors, Color[] warmColors) {
+        checkLevels(2 * levelsPerSide);
+
+        Color[] levelColors = new Color[2 * levelsPerSide];
+        for (int l = 0; l < levelsPerSide; l++) {
+            levelColors[levelsPerSide - 1 - l] = interpolate(coldColors, l, levelsPerSide);
+            levelColors[levelsPerSide + l] = interpolate(warmColors, l, levelsPerSide);
+        }
+        return new ColorMap(true, levelColors);
+    }
+
+    /**
+     * Creates a map going through colors from the lowest anomaly to the
+     * highest one.
+     *
+     * @param levels the number of levels (1 to 127).
+     * @param colors the colors of the map, from the lowest anomaly to the highest.
+     * @return a sequential ColorMap.
+     */
+    public static ColorMap sequential(int levels, Color... colors) {
+        checkLevels(levels);
+
+        Color[] levelColors = new Color[levels];
+        for (int l = 0; l < levels; l++) {
+            levelColors[l] = interpolate(colors, l, levels);
+        }
+        return new ColorMap(false, levelColors);
+    }
+
+    private static void checkLevels(int levels) {
+        if (levels < 1 || levels > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid number of color levels : " + levels);
+        }
+    }
+
+    // the first and last levels take the first and last colors exactly
+    private static Color interpolate(Color[] colors, int level, int levels) {
+        if (colors.length == 1 || levels == 1) {
+            return colors[0];
+        }
+        double position = (double) level / (levels - 1) * (colors.length - 1);
+        int from = Math.min((int) position, colors.length - 2);
+        return colors[from].interpolate(colors[from + 1], position - from);
+    }
+
+    public boolean isDiverging() { return diverging; }
+
+    /**
+     * @return the number of colors of the palette, the "no anomaly" color included.
+     */
+    public int getPaletteSize() { return palette.length; }
+
+    public Color getColor(int paletteIndex) { return palette[paletteIndex]; }
+
+    /**
+     * @return a copy of the palette, indexed by the palette indexes.
+     */
+    public Color[] getPalette() { return palette.clone(); }
+
+    public int getLutSize() { return LUT_SIZE; }
+
+    /**
+     * @param entry an entry of the lookup table, 0 being the lowest anomaly.
+     * @return the palette index of the entry.
+     */
+    public int getLutIndex(int entry) { return lut[entry]; }
+
+    /**
+     * Returns the palette index of an anomaly.
+     *
+     * @param anomaly the anomaly to color.
+     * @param anoMin the minimum anomaly of the collection.
+     * @param anoMax the maximum anomaly of the collection.
+     * @return a palette index, NO_ANOMALY_INDEX for "NA".
+     */
+    public int indexOf(float anomaly, float anoMin, float anoMax) {
+        return indexer(anoMin, anoMax).indexOf(anomaly);
+    }
+
+    /**
+     * Returns the palette indexer of a collection's anomalies. A diverging
+     * map colors whole slices through SliceKernels.
+     *
+     * @param anoMin the minimum anomaly of the collection.
+     * @param anoMax the maximum anomaly of the collection.
+     * @return the palette indexer.
+     */
+    public PaletteIndexer indexer(float anoMin, float anoMax) {
+        if (diverging) {
+            // [anoMin, 0] -> [0, LUT_SIZE/2] and [0, anoMax] -> [LUT_SIZE/2, LUT_SIZE]
+            final float half = LUT_SIZE / 2.f;
+
+            return new PaletteIndexer() {
+                // same computation as SliceKernels, for a single anomaly
+                @Override
+                public int indexOf(float anomaly) {
+                    if (anomaly > 0) {
+                        return lut[(int) Math.min(anomaly / anoMax * half + half, LUT_SIZE - 1)];
+                    } else if (anomaly < 0) {
+                        return lut[(int) Math.max(0.f, Math.min(anomaly / -anoMin * half + half, half - 1))];
+                    }
+                    return NO_ANOMALY_INDEX;     // no anomaly or "NA"
+                }
+
+                @Override
+                public void indexAll(float[] anomalies, byte[] dst, int length) {
+                    float[] normalised = SliceKernels.normalise(anomalies, anoMin, anoMax, new float[length], length);
+                    SliceKernels.paletteIndexes(normalised, lut, (byte) NO_ANOMALY_INDEX, dst, length);
+                }
+            };
+        }
+
+        // [anoMin, anoMax] -> [0, LUT_SIZE]
+        final float scale = anoMax > anoMin ? LUT_SIZE / (anoMax - anoMin) : 0;
+
+        return anomaly -> {
+            if (Float.isNaN(anomaly)) {
+                return NO_ANOMALY_INDEX;
+            }
+            int entry = (int) ((anomaly - anoMin) * scale);
+            return lut[Math.max(0, Math.min(LUT_SIZE - 1, entry))];
+        };
+    }
+}
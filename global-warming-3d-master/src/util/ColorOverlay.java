@@ -0,0 +1,323 @@
+package util;
+
+import java.util.Arrays;
+import javafx.geometry.Point3D;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import model.AnomalyStore;
+import model.GeoCoord;
+import model.GridPyramid;
+import model.GridSpec;
+import model.GridVertexCache;
+import model.ResourceManager;
+
+/**
+ * ColorOverlay class is a single mesh made of every anomaly quadrilateral
+ * of the globe, colored through a shared palette texture.
+ *
+ * The quads follow the GridSpec of a level of the collection's GridPyramid,
+ * each one being centered on its cell's coordinates.
+ * Each cell uses one texture coordinate pointing on its palette color, so
+ * a year change only rewrites the texCoords array : the overlay stays one
+ * node with one material whatever the grid size.
+ *
+ * The palette indexes of the years are kept in a FrameCache, the years
+ * ahead of the displayed one being computed in background. Only the cells
+ * the camera can see are updated : the others catch up with the displayed
+ * frame when they rotate into view.
+ *
+ * @author Antonin
+ */
+public class ColorOverlay extends MeshView implements AnomalyOverlay<byte[]> {
+    private static final float RADIUS_LAYER = 1.01f;
+
+    // the frame of a year is one byte per cell
+    private static final long FRAME_CACHE_BYTES = 16L << 20;
+    private static final int PREFETCH_YEARS = 24;
+
+    private final AnomalyStore store;
+    private final GridPyramid.Level level;
+    private final TriangleMesh mesh;
+    private final ColorMap colorMap;
+    private final int paletteSize;
+
+    private final int cellCount;
+    private final float[] texCoords;
+
+    // palette index written in texCoords, and the one of the displayed frame
+    private final byte[] writtenIndexes;
+    private byte[] frameIndexes;
+    private final HemisphereCulling culling;
+
+    private final FrameCache<byte[]> frames;
+    // scratch of the level's computations, one per computing thread
+    private final ThreadLocal<GridPyramid.Scratch> scratch;
+    private volatile PaletteIndexer paletteIndexer;
+    private float anoMin = Float.NaN;
+    private float anoMax = Float.NaN;
+    private int frameYearCount;
+    private int lastYear;
+
+    /**
+     * Builds the quadrilaterals of every cell of a level of the collection.
+     *
+     * @param rm the collection of anomalies to display.
+     * @param level the level of the collection's GridPyramid to display.
+     * @param colorMap the map coloring the anomalies.
+     */
+    public ColorOverlay(ResourceManager rm, GridPyramid.Level level, ColorMap colorMap) {
+        this.store = rm.getAnomalyStore();
+        this.level = level;
+        this.colorMap = colorMap;
+        this.paletteSize = colorMap.getPaletteSize();
+
+        final GridSpec grid = level.getGridSpec();
+        final int latCount = grid.getLatCount();
+        final int lonCount = grid.getLonCount();
+        cellCount = grid.getCellCount();
+
+        float[] points = computePoints(grid);
+
+        int[] faces = new int[cellCount * 12];
+        int f = 0;
+        int cell = 0;
+        for (int i = 0; i < latCount; i++) {
+            for (int j = 0; j < lonCount; j++) {
+                int bottomLeft = i * (lonCount + 1) + j;
+                int bottomRight = bottomLeft + 1;
+                int topLeft = bottomLeft + lonCount + 1;
+                int topRight = topLeft + 1;
+
+                // same winding as GeometryManager.createQuadrilateral
+                faces[f++] = topRight;      faces[f++] = cell;
+                faces[f++] = topLeft;       faces[f++] = cell;
+                faces[f++] = bottomLeft;    faces[f++] = cell;
+                faces[f++] = topRight;      faces[f++] = cell;
+                faces[f++] = bottomLeft;    faces[f++] = cell;
+                faces[f++] = bottomRight;   faces[f++] = cell;
+
+                cell++;
+            }
+        }
+
+        texCoords = new float[cellCount * 2];
+        writtenIndexes = new byte[cellCount];
+        frameIndexes = writtenIndexes.clone();
+        for (int c = 0; c < cellCount; c++) {
+            setPaletteIndex(c, 0);
+        }
+
+        culling = new HemisphereCulling(grid, GridVertexCache.of(grid.getLatOrigin(), grid.getLonOrigin(),
+                grid.getLatStep(), grid.getLonStep(), latCount, lonCount));
+
+        mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points);
+        mesh.getTexCoords().setAll(texCoords);
+        mesh.getFaces().setAll(faces);
+        setMesh(mesh);
+
+        PhongMaterial material = new PhongMaterial(Color.WHITE);
+        material.setDiffuseMap(createPaletteImage(colorMap.getPalette()));
+        setMaterial(material);
+
+        scratch = ThreadLocal.withInitial(level::newScratch);
+        frames = new FrameCache<>(year -> computePaletteIndexes(year, 0), frame -> frame.length,
+                FRAME_CACHE_BYTES, PREFETCH_YEARS);
+        setRange(rm.getMinTempAnomaly(), rm.getMaxTempAnomaly());
+    }
+
+    /**
+     * Computes the lattice of the quads' corners, shared by neighbour quads.
+     * A coarse level's last row may cross a pole : its corners stop on the pole.
+     *
+     * @param grid the GridSpec of the displayed level.
+     * @return the points of the mesh, row by row from the south.
+     */
+    static float[] computePoints(GridSpec grid) {
+        float[] cornerLats = new float[grid.getLatCount() + 1];
+        for (int i = 0; i < cornerLats.length; i++) {
+            cornerLats[i] = GeoCoord.clampLat(grid.getRowLat(i) - grid.getLatStep() / 2);
+        }
+        float[] cornerLons = new float[grid.getLonCount() + 1];
+        for (int j = 0; j < cornerLons.length; j++) {
+            cornerLons[j] = (float) (grid.getColumnLon(j) - grid.getLonStep() / 2);
+        }
+        return new GridVertexCache(cornerLats, cornerLons).getPoints(RADIUS_LAYER);
+    }
+    
+    private static WritableImage createPaletteImage(Color[] palette) {
+        WritableImage image = new WritableImage(palette.length, 1);
+        PixelWriter writer = image.getPixelWriter();
+        for (int i = 0; i < palette.length; i++) {
+            writer.setColor(i, 0, palette[i]);
+        }
+        return image;
+    }
+
+    /**
+     * Tells whether the overlay displays the anomalies of this collection.
+     *
+     * @param rm a collection of anomalies.
+     * @return true if the overlay was built for the collection's store.
+     */
+    @Override
+    public boolean isBuiltFor(ResourceManager rm) {
+        return rm.getAnomalyStore() == store;
+    }
+
+    /**
+     * @return the level of the GridPyramid displayed by the overlay.
+     */
+    public GridPyramid.Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the anomalies normalised by the color map. The cached frames are
+     * discarded if the range changes or if years were appended.
+     *
+     * @param anoMin the minimum anomaly of the collection.
+     * @param anoMax the maximum anomaly of the collection.
+     */
+    @Override
+    public void setRange(float anoMin, float anoMax) {
+        if (Float.compare(anoMin, this.anoMin) != 0 || Float.compare(anoMax, this.anoMax) != 0) {
+            this.anoMin = anoMin;
+            this.anoMax = anoMax;
+            paletteIndexer = colorMap.indexer(anoMin, anoMax);
+            frames.clear();
+        }
+
+        // the appended years were cached without anomalies
+        if (store.getYearCount() != frameYearCount) {
+            frameYearCount = store.getYearCount();
+            frames.clear();
+        }
+    }
+
+    @Override
+    public byte[] frameOf(int year) {
+        return frames.get(year);
+    }
+
+    @Override
+    public byte[] frameOf(int year, float fraction) {
+        // the frames between two years aren't cached
+        return fraction > 0 ? computePaletteIndexes(year, fraction) : frameOf(year);
+    }
+
+    @Override
+    public void prefetch(int year) {
+        int direction = year < lastYear ? -1 : 1;
+        lastYear = year;
+        if (frameYearCount > 0) {
+            frames.prefetch(year, direction, store.getYear(0), store.getYear(frameYearCount - 1));
+        }
+    }
+
+    /**
+     * Computes the palette index of every cell for the given year. Can be
+     * called from any thread, each thread interpolating in its own scratch.
+     *
+     * @param year the year to color.
+     * @param fraction the position toward the following year (0 to 1), the
+     * anomalies being interpolated.
+     * @return the palette index of each quad.
+     */
+    public byte[] computePaletteIndexes(int year, float fraction) {
+        PaletteIndexer indexer = paletteIndexer;
+
+        byte[] indexes = new byte[cellCount];
+        float[] levelSlice = copyLevelSlice(year, fraction, new float[cellCount]);
+        if (levelSlice == null) {
+            Arrays.fill(indexes, (byte) indexer.indexOf(Float.NaN));
+            return indexes;
+        }
+
+        indexer.indexAll(levelSlice, indexes, cellCount);
+        return indexes;
+    }
+
+    /**
+     * Computes the colored value of every cell of the level for a year :
+     * its anomaly. Can be called from any thread, with the scratch of the
+     * calling thread (see getScratch()).
+     *
+     * @param year the year to color.
+     * @param fraction the position toward the following year (0 to 1).
+     * @param dst the destination array, of a value per quad.
+     * @return the destination array, or null if the year is unknown.
+     */
+    protected float[] copyLevelSlice(int year, float fraction, float[] dst) {
+        int yearIndex = store.yearIndexOf(year);
+        return yearIndex < 0 ? null : level.copyYearSlice(yearIndex, fraction, dst, getScratch());
+    }
+
+    /**
+     * @return the scratch arrays of the level's computations, owned by the
+     * calling thread.
+     */
+    protected GridPyramid.Scratch getScratch() {
+        return scratch.get();
+    }
+
+    /**
+     * Discards the cached frames, e.g. when the colored values change.
+     */
+    protected void clearFrames() {
+        frames.clear();
+    }
+
+    /**
+     * Colors the visible cells with a frame of palette indexes.
+     *
+     * @param indexes the palette index of each quad.
+     */
+    @Override
+    public void applyFrame(byte[] indexes) {
+        frameIndexes = indexes;
+        updateVisibleCells();
+    }
+
+    /**
+     * Updates the cells which rotated into view with the displayed frame.
+     *
+     * @param viewpoint the camera position, null to update every cell.
+     */
+    @Override
+    public void setViewpoint(Point3D viewpoint) {
+        if (culling.update(viewpoint)) {
+            updateVisibleCells();
+        }
+    }
+
+    private void updateVisibleCells() {
+        int touched = 0;
+        for (int c = 0; c < cellCount; c++) {
+            if (writtenIndexes[c] != frameIndexes[c] && culling.isVisible(c, RADIUS_LAYER - 1)) {
+                writePaletteIndex(c, frameIndexes[c]);
+                touched++;
+            }
+        }
+
+        if (touched > 0) {
+            mesh.getTexCoords().set(0, texCoords, 0, texCoords.length);
+        }
+        RenderMetrics.recordCellsTouched(touched);
+    }
+
+    private void writePaletteIndex(int cell, byte index) {
+        writtenIndexes[cell] = index;
+        setPaletteIndex(cell, index);
+    }
+
+    // points the cell's texture coordinate on the center of a palette texel
+    private void setPaletteIndex(int cell, int index) {
+        texCoords[2 * cell] = (index + 0.5f) / paletteSize;
+        texCoords[2 * cell + 1] = 0.5f;
+    }
+}
@@ -1,5 +1,10 @@
 package util;
 
+import java.io.File;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 
 /**
@@ -11,11 +16,24 @@ public class ErrorManager {
     
     /**
      * Displays an alert message on file loading failed attempt.
-     * Triggers program's shutdown.
+     * Triggers program's shutdown. From another thread (e.g. the startup's
+     * loading), the alert is displayed by the FX thread and the calling
+     * thread waits for the shutdown.
      * 
      * @param path a string corresponding to the unresolved path.
      */
     public static void displayLoadWarning(String path) {
+            if (!Platform.isFxApplicationThread()) {
+                FutureTask<Void> alert = new FutureTask<>(() -> displayLoadWarning(path), null);
+                Platform.runLater(alert);
+                try {
+                    alert.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.exit(1);
+                }
+                return;
+            }
+            
             String fileName = path.substring(path.lastIndexOf("/")+1);
             String pathName = path.substring(0, path.lastIndexOf("/"));
             
@@ -29,6 +47,41 @@ public class ErrorManager {
             System.exit(1);
     }
 
+    /**
+     * Displays an alert message when the startup fails for an unexpected
+     * reason (e.g. while building the globe or the first frame).
+     * Triggers program's shutdown. Must be called from the FX thread.
+     * 
+     * @param e the failure, unwrapped if it comes from a CompletableFuture.
+     */
+    public static void displayInitWarning(Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            cause.printStackTrace();
+            
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Erreur lors de l'initialisation de l'application.");
+            alert.setHeaderText("L'application n'a pas pû démarrer.");
+            alert.setContentText(String.valueOf(cause));
+            alert.showAndWait();
+            System.exit(1);
+    }
+
+    /**
+     * Displays an alert message when a file can't be appended to the
+     * collection. The application goes on with the current data.
+     * 
+     * @param path a string corresponding to the unread file's path.
+     */
+    public static void displayAppendWarning(String path) {
+            String fileName = path.substring(path.lastIndexOf(File.separatorChar)+1);
+            
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Erreur lors de l'ajout des données.");
+            alert.setHeaderText("Le fichier \"" + fileName + "\" n'a pas pû être lu.");
+            alert.setContentText("Les données affichées n'ont pas été modifiées.");
+            alert.showAndWait();
+    }
+
     /**
      * Displays an informative dialog box on incorrect text field submission.
      * 
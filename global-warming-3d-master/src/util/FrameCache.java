@@ -0,0 +1,145 @@
+package util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * FrameCache class keeps the render payloads of the years (palette indexes,
+ * bar heights...) so that playback on the FX thread only swaps arrays.
+ *
+ * Frames ahead of the playhead are computed on a background thread. The
+ * cache is bounded in bytes and evicts the least recently used frames. A
+ * new prefetch request supersedes the previous one, and clear() discards
+ * the frames computed before it (even those being computed).
+ *
+ * @param <T> the type of the frames.
+ * @author Antonin
+ */
+public class FrameCache<T> {
+    private static final ExecutorService PRECOMPUTE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "frame-precompute");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final IntFunction<T> frameComputer;
+    private final ToLongFunction<T> frameSize;
+    private final long maxBytes;
+    private final int prefetchYears;
+
+    // least recently used first
+    private final LinkedHashMap<Integer, T> frames = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private volatile long lastFrameBytes;
+
+    // incremented by clear() : frames computed before are discarded
+    private volatile int generation;
+
+    // incremented by prefetch() : the previous prefetch stops
+    private volatile int prefetchTicket;
+
+    /**
+     * @param frameComputer computes the frame of a year, called from any thread.
+     * @param frameSize gives the size of a frame in bytes.
+     * @param maxBytes the maximum size of the cached frames.
+     * @param prefetchYears the number of years computed ahead of the playhead.
+     */
+    public FrameCache(IntFunction<T> frameComputer, ToLongFunction<T> frameSize, long maxBytes, int prefetchYears) {
+        this.frameComputer = frameComputer;
+        this.frameSize = frameSize;
+        this.maxBytes = maxBytes;
+        this.prefetchYears = prefetchYears;
+    }
+
+    /**
+     * Returns the frame of a year, computed by the calling thread if it
+     * isn't cached yet.
+     *
+     * @param year the year of the frame.
+     * @return the frame.
+     */
+    public T get(int year) {
+        T frame;
+        int frameGeneration = generation;
+        synchronized (this) {
+            frame = frames.get(year);
+        }
+        if (frame == null) {
+            frame = frameComputer.apply(year);
+            put(year, frame, frameGeneration);
+        }
+        return frame;
+    }
+
+    /**
+     * Computes in background the frames following a year.
+     *
+     * @param year the year of the playhead.
+     * @param direction 1 to compute the next years, -1 for the previous ones.
+     * @param firstYear the first year which can be computed.
+     * @param lastYear the last year which can be computed.
+     */
+    public void prefetch(int year, int direction, int firstYear, int lastYear) {
+        final int ticket = ++prefetchTicket;
+        final int frameGeneration = generation;
+
+        PRECOMPUTE_EXECUTOR.execute(() -> {
+            for (int k = 1; k <= prefetchYears; k++) {
+                int y = year + k * direction;
+                if (y < firstYear || y > lastYear || ticket != prefetchTicket || frameGeneration != generation) {
+                    return;
+                }
+                // the frames ahead don't take more than half of the cache
+                if (k * lastFrameBytes > maxBytes / 2) {
+                    return;
+                }
+                if (!contains(y)) {
+                    put(y, frameComputer.apply(y), frameGeneration);
+                }
+            }
+        });
+    }
+
+    /**
+     * Discards every frame, e.g. when the collection or its normalisation
+     * has changed.
+     */
+    public synchronized void clear() {
+        generation++;
+        prefetchTicket++;
+        frames.clear();
+        bytes = 0;
+    }
+
+    public synchronized boolean contains(int year) {
+        return frames.containsKey(year);
+    }
+
+    public synchronized int size() {
+        return frames.size();
+    }
+
+    private synchronized void put(int year, T frame, int frameGeneration) {
+        if (frameGeneration != generation) {
+            return;     // computed before a clear()
+        }
+
+        T previous = frames.put(year, frame);
+        lastFrameBytes = frameSize.applyAsLong(frame);
+        bytes += lastFrameBytes - (previous == null ? 0 : frameSize.applyAsLong(previous));
+
+        Iterator<Map.Entry<Integer, T>> it = frames.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Integer, T> eldest = it.next();
+            if (eldest.getKey() != year) {
+                bytes -= frameSize.applyAsLong(eldest.getValue());
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package util;
+
+import javafx.animation.AnimationTimer;
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+/**
+ * FrameProbe class measures the interval between two pulses of the FX
+ * thread into the RenderMetrics, and samples the size of the scene graph
+ * twice a second.
+ *
+ * Nothing is allocated per frame : the nodes are counted by walking the
+ * children lists by index.
+ *
+ * @author Antonin
+ */
+public class FrameProbe extends AnimationTimer {
+    // period of the node counts and of the sample listener
+    private static final long SAMPLE_PERIOD = 500_000_000L;
+
+    private final Parent anomalyGroup;
+    private final Parent root3D;
+    private final Runnable onSample;
+
+    private long lastFrame = -1;
+    private long lastSample;
+
+    /**
+     * @param anomalyGroup the group of the anomalies' overlays.
+     * @param root3D the root of the 3D scene.
+     * @param onSample called on the FX thread after each sample, e.g. to
+     * refresh a display of the metrics.
+     */
+    public FrameProbe(Parent anomalyGroup, Parent root3D, Runnable onSample) {
+        this.anomalyGroup = anomalyGroup;
+        this.root3D = root3D;
+        this.onSample = onSample;
+    }
+
+    @Override
+    public void handle(long now) {
+        if (lastFrame >= 0) {
+            RenderMetrics.recordFrameInterval(now - lastFrame);
+        }
+        lastFrame = now;
+
+        if (now - lastSample >= SAMPLE_PERIOD) {
+            lastSample = now;
+            RenderMetrics.recordNodeCounts(anomalyGroup.getChildrenUnmodifiable().size(), countNodes(root3D));
+            onSample.run();
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        // the stopped time isn't a frame interval
+        lastFrame = -1;
+    }
+
+    private static int countNodes(Parent parent) {
+        ObservableList<Node> children = parent.getChildrenUnmodifiable();
+        int count = 1;
+        for (int i = 0; i < children.size(); i++) {
+            Node child = children.get(i);
+            count += child instanceof Parent ? countNodes((Parent) child) : 1;
+        }
+        return count;
+    }
+}
@@ -2,20 +2,27 @@ package util;
 
 import com.interactivemesh.jfx.importer.obj.ObjModelImporter;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Iterator;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
 import javafx.geometry.Point3D;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Cylinder;
 import javafx.scene.shape.MeshView;
+import javafx.scene.shape.Shape3D;
 import javafx.scene.shape.Sphere;
 import javafx.scene.shape.TriangleMesh;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Translate;
-import model.GeoCoord;
+import javafx.util.Duration;
 import model.GlobeAnomaliesRepresentation;
+import model.GridPyramid;
 import model.ResourceManager;
 
 /**
@@ -31,13 +38,44 @@ public class GeometryManager {
     private static final Color YELLOW = new Color(0.5, 0.5, 0.0, MAT_OPACITY);
     private static final Color ORANGE = new Color(0.5, 0.3, 0.0, MAT_OPACITY);
     
-    private static final PhongMaterial BLUE_MATERIAL = new PhongMaterial(BLUE);
+    // Number of levels of each sign in color mode
+    private static final int COLOR_LEVELS = 5;
     
-    private static final PhongMaterial RED_MATERIAL = new PhongMaterial(RED);
+    private static final ColorMap COLOR_MAP = ColorMap.diverging(COLOR_LEVELS,
+            new Color[] {YELLOW.invert(), ORANGE.invert(), RED.invert()},
+            new Color[] {YELLOW, ORANGE, RED});
+    
+    // Trends colored by the strongest level from this rate, in °C/decade
+    private static final float TREND_RANGE = 1.f;
+    
+    private static final ColorMap HISTOGRAM_MAP = ColorMap.diverging(1,
+            new Color[] {BLUE}, new Color[] {RED});
+    
+    private static final PhongMaterial BLUE_MATERIAL = shinyMaterial(HISTOGRAM_MAP.getColor(1));
+    
+    private static final PhongMaterial RED_MATERIAL = shinyMaterial(HISTOGRAM_MAP.getColor(2));
     
     private static final PhongMaterial GREEN_MATERIAL = new PhongMaterial(Color.GREEN);
     
     
+    /**
+     * Returns the map coloring the anomalies of a display mode, to be shared
+     * by the legend.
+     *
+     * @param displayType the display mode.
+     * @return the ColorMap of the mode.
+     */
+    public static ColorMap colorMapOf(GlobeAnomaliesRepresentation displayType) {
+        return displayType == GlobeAnomaliesRepresentation.BY_HISTOGRAM ? HISTOGRAM_MAP : COLOR_MAP;
+    }
+    
+    // the materials are shared by overlays which may be built off the FX thread
+    private static PhongMaterial shinyMaterial(Color color) {
+        PhongMaterial material = new PhongMaterial(color);
+        material.setSpecularColor(color);
+        return material;
+    }
+    
     /**
      * Load geometry from a 3D model path using ObjModelImporterJFX lib.
      *
@@ -154,116 +192,116 @@ public class GeometryManager {
     /**
      * Creates and attachs anomalies shapes (corresponding to the chosen year
      * and display mode) to the specified Group.
+     * The whole globe is a single {@link ColorOverlay} in color mode, a
+     * single {@link HistogramOverlay} in histogram mode and a single
+     * {@link TrendOverlay} in trend mode, all kept in the group's properties
+     * to be reused.
      *
      * @param anoGroup
      * @param rm
      * @param year
      * @param displayType
+     * @param level the level of the collection's GridPyramid (0 is the finest).
      */
-    public static void drawAnomalies(Group anoGroup, ResourceManager rm, int year, GlobeAnomaliesRepresentation displayType) {
-        // it's too bad to do this every time :
-        BLUE_MATERIAL.setSpecularColor(BLUE);
-        RED_MATERIAL.setSpecularColor(RED);
+    public static void drawAnomalies(Group anoGroup, ResourceManager rm, int year,
+                                     GlobeAnomaliesRepresentation displayType, int level) {
+        AnomalyOverlay<?> overlay = overlayOf(anoGroup, rm, displayType, level);
+        
+        attachOverlay(anoGroup, overlay);
+        show(overlay, year);
+    }
     
+    // same as overlay.show(), the two stages being measured
+    private static <T> void show(AnomalyOverlay<T> overlay, int year) {
+        long start = System.nanoTime();
+        T frame = overlay.frameOf(year);
+        long computed = System.nanoTime();
+        RenderMetrics.recordCompute(computed - start);
+        
+        overlay.applyFrame(frame);
+        RenderMetrics.recordApply(System.nanoTime() - computed);
+        overlay.prefetch(year);
+    }
+    
+    /**
+     * Returns the overlay of a display mode and level, built on first use
+     * and kept in the group's properties. Its anomalies range is the
+     * collection's one, the trends range being fixed.
+     * The overlay isn't attached to the group (see attachOverlay), so it can
+     * be called from any thread : the RenderPipeline builds the overlays on
+     * its compute thread.
+     * 
+     * @param anoGroup the group displaying the anomalies.
+     * @param rm the collection of anomalies.
+     * @param displayType the display mode.
+     * @param level the level of the collection's GridPyramid (0 is the finest).
+     * @return the overlay of the display mode.
+     */
+    public static synchronized AnomalyOverlay<?> overlayOf(Group anoGroup, ResourceManager rm,
+                                              GlobeAnomaliesRepresentation displayType, int level) {
+        GridPyramid pyramid = rm.getGridPyramid();
+        level = Math.min(level, pyramid.getLevelCount() - 1);
         
-        float anoMax = rm.getMaxTempAnomaly();
-        float anoMin = rm.getMinTempAnomaly();
+        Object key = Arrays.asList(displayType, level);
+        AnomalyOverlay<?> overlay = (AnomalyOverlay<?>) anoGroup.getProperties().get(key);
         
-                    
-        float radiusLayer = 1.01f;
+        if (overlay == null || !overlay.isBuiltFor(rm)) {
+            if (displayType == GlobeAnomaliesRepresentation.BY_COLOR) {
+                overlay = new ColorOverlay(rm, pyramid.getLevel(level), COLOR_MAP);
+            } else if (displayType == GlobeAnomaliesRepresentation.BY_TREND) {
+                overlay = new TrendOverlay(rm, pyramid.getLevel(level), COLOR_MAP);
+            } else {
+                overlay = new HistogramOverlay(rm, pyramid.getLevel(level), RED_MATERIAL, BLUE_MATERIAL);
+            }
+            anoGroup.getProperties().put(key, overlay);
+        }
         
-        int index = 0;
+        if (displayType == GlobeAnomaliesRepresentation.BY_TREND) {
+            overlay.setRange(-TREND_RANGE, TREND_RANGE);
+        } else {
+            overlay.setRange(rm.getMinTempAnomaly(), rm.getMaxTempAnomaly());
+        }
+        return overlay;
+    }
+    
+    /**
+     * Makes an overlay the only child of the group, if it isn't already.
+     * 
+     * @param anoGroup the group displaying the anomalies.
+     * @param overlay an overlay returned by overlayOf().
+     */
+    public static void attachOverlay(Group anoGroup, AnomalyOverlay<?> overlay) {
+        Node node = (Node) overlay;
         
-        for (int lat = -88; lat <= 88; lat = lat + 4) {
-            for (int lon = -178; lon <= 178; lon = lon + 4) {
-                
-                float anomaly = rm.getAnomaly(lat, lon, year);
-                double delta = anomaly > 0 ? anomaly/anoMax : -anomaly/-anoMin;
-                delta = Math.floor(delta*100)/100;
-                
-                PhongMaterial material = new PhongMaterial();
-                
-                if (displayType == GlobeAnomaliesRepresentation.BY_COLOR) {
-                    Color quadColor = Color.TRANSPARENT;
-                    
-                    // TODO : choose quadColor based on the Scale ? like this :
-                    // Color quadColor = (anomaly > 0.f ? getColorOnScale(delta) : getColorOnScale(-delta));
-                    
-                    if (anomaly > 0.f) {
-                        quadColor = delta > 0.2 ? (delta > 0.7 ? RED : ORANGE) : YELLOW;
-                    } else if (anomaly < 0.f) {
-                        quadColor = delta > 0.2 ? (delta > 0.7 ? RED.invert() : ORANGE.invert()) : YELLOW.invert();                
-                    }
-                    
-                    material.setDiffuseColor(quadColor);
-                    material.setSpecularColor(quadColor);
-                    
-                    
-                    MeshView quad;
-                    
-                    try {
-                        // Change material color instead of replacing entire quad
-                        Node existingNode = anoGroup.getChildren().get(index);
-                        
-                        if(existingNode instanceof MeshView) {
-                            quad = (MeshView) existingNode;
-                            quad.setMaterial(material);
-                        } else {
-                            // the node isnt a meshview
-                            anoGroup.getChildren().remove(existingNode);
-                            throw new Exception();
-                        }
-                        
-                        // replace quadrilateral n°index
-                        anoGroup.getChildren().set(index++, quad);
-                    } catch (Exception e) {
-                        // When no quad exists before :
-                        
-                        quad = createQuadrilateral(
-                                GeoCoord.geoCoordTo3dCoord(lat + 4, lon + 4, radiusLayer),
-                                GeoCoord.geoCoordTo3dCoord(lat, lon + 4, radiusLayer),
-                                GeoCoord.geoCoordTo3dCoord(lat, lon, radiusLayer),
-                                GeoCoord.geoCoordTo3dCoord(lat + 4, lon, radiusLayer),
-                                material );
-                        
-                        anoGroup.getChildren().add(index++, quad);
-                    }
-                } else {
-                    material =  anomaly > 0 ? RED_MATERIAL : BLUE_MATERIAL;                    
-                    
-                    Cylinder line;
-                    
-                    try {
-                        // Change material color instead of replacing entire line
-                        Node existingNode = anoGroup.getChildren().get(index);
-                        
-                        if(existingNode instanceof Cylinder) {
-                            line = (Cylinder) existingNode;
-                            
-                            line.setMaterial(material);
-                            line.setHeight(0.99f + delta);
-                        } else {
-                            // the node isnt a line
-                            anoGroup.getChildren().remove(existingNode);
-                            throw new Exception();
-                        }
-                        
-                        // replace line n°index
-                        anoGroup.getChildren().set(index++, line);
-                    } catch (Exception e) {
-                        // When no line exists before :
-                        
-                        Point3D target = GeoCoord.geoCoordTo3dCoord(lat + 4, lon + 4, 0.99f + delta);
-
-                        line = createLine(target);
-                        
-                        line.setMaterial(material);
-                        anoGroup.getChildren().add(line);
-                    }
-                }
+        if (anoGroup.getChildren().size() != 1 || anoGroup.getChildren().get(0) != node) {
+            anoGroup.getChildren().setAll(node);
+        }
+    }
+    
+    /**
+     * Fades the shapes of a group in, from transparent to their materials'
+     * colors. The opacity of the nodes doesn't apply to 3D shapes : the
+     * alpha of their diffuse colors is animated instead.
+     *
+     * @param group the group to fade in, e.g. the anomalies' one.
+     * @param duration the duration of the fading.
+     */
+    public static void fadeIn(Parent group, Duration duration) {
+        Timeline timeline = new Timeline();
+        
+        for (Node node : group.getChildrenUnmodifiable()) {
+            if (node instanceof Parent) {
+                fadeIn((Parent) node, duration);
+            } else if (node instanceof Shape3D && ((Shape3D) node).getMaterial() instanceof PhongMaterial) {
+                PhongMaterial material = (PhongMaterial) ((Shape3D) node).getMaterial();
+                Color color = material.getDiffuseColor();
                 
+                timeline.getKeyFrames().addAll(
+                        new KeyFrame(Duration.ZERO, new KeyValue(material.diffuseColorProperty(), color.deriveColor(0, 1, 1, 0))),
+                        new KeyFrame(duration, new KeyValue(material.diffuseColorProperty(), color)));
             }
         }
+        timeline.play();
     }
     
     /**
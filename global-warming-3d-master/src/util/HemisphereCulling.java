@@ -0,0 +1,95 @@
+package util;
+
+import java.util.Arrays;
+import javafx.geometry.Point3D;
+import model.GridSpec;
+import model.GridVertexCache;
+
+/**
+ * HemisphereCulling class tells which cells of a grid the camera can see,
+ * the others being hidden by the globe.
+ *
+ * For each cell, it gives the height above the globe's surface from which
+ * the cell is visible : 0 for the cells of the visible hemisphere (plus a
+ * margin), more for the cells beyond the horizon, whose top must rise above
+ * it (e.g. a histogram bar).
+ *
+ * @author Antonin
+ */
+public class HemisphereCulling {
+    private static final double GLOBE_RADIUS = 1.0;
+
+    // extra angle kept around the horizon, in radians
+    private static final double MARGIN = Math.toRadians(5);
+
+    private final GridVertexCache centers;
+
+    // angle between a cell's center and its farthest corner
+    private final double cellRadius;
+
+    private final float[] minVisibleHeight;
+    private Point3D viewpoint;
+
+    /**
+     * @param grid the grid of the cells.
+     * @param centers the cells' centers, in the grid's order.
+     */
+    public HemisphereCulling(GridSpec grid, GridVertexCache centers) {
+        this.centers = centers;
+        this.cellRadius = Math.toRadians(Math.hypot(grid.getLatStep(), grid.getLonStep()) / 2);
+        this.minVisibleHeight = new float[centers.getVertexCount()];
+    }
+
+    /**
+     * Updates the visibility of the cells from a new camera position.
+     *
+     * @param viewpoint the camera position in the globe's coordinates, or
+     * null to see every cell.
+     * @return false if the viewpoint didn't change.
+     */
+    public boolean update(Point3D viewpoint) {
+        if (viewpoint == null ? this.viewpoint == null : viewpoint.equals(this.viewpoint)) {
+            return false;
+        }
+        this.viewpoint = viewpoint;
+
+        final double distance = viewpoint == null ? 0 : viewpoint.magnitude();
+        if (distance <= GLOBE_RADIUS) {
+            // from the inside (or no camera), nothing is hidden
+            Arrays.fill(minVisibleHeight, 0.f);
+            return true;
+        }
+
+        final double x = viewpoint.getX() / distance;
+        final double y = viewpoint.getY() / distance;
+        final double z = viewpoint.getZ() / distance;
+
+        // the surface is visible up to the horizon's angle from the camera
+        final double horizon = Math.acos(GLOBE_RADIUS / distance) + cellRadius + MARGIN;
+        final double cosHorizon = Math.cos(horizon);
+
+        for (int cell = 0; cell < minVisibleHeight.length; cell++) {
+            double cos = x * centers.getX(cell) + y * centers.getY(cell) + z * centers.getZ(cell);
+            if (cos >= cosHorizon) {
+                minVisibleHeight[cell] = 0.f;
+                continue;
+            }
+
+            // a point beyond the horizon is visible above the tangent to it
+            double beyond = Math.acos(Math.max(-1.0, cos)) - horizon;
+            minVisibleHeight[cell] = beyond < Math.PI / 2
+                    ? (float) (GLOBE_RADIUS / Math.cos(beyond) - GLOBE_RADIUS)
+                    : Float.POSITIVE_INFINITY;
+        }
+        return true;
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @param height the height of the cell's top above the globe's surface.
+     * @return true if the camera can see the top of the cell.
+     */
+    public boolean isVisible(int cell, float height) {
+        return height >= minVisibleHeight[cell];
+    }
+}
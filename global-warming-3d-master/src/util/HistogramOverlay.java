@@ -0,0 +1,367 @@
+package util;
+
+import java.util.Arrays;
+import javafx.geometry.Point3D;
+import javafx.scene.Group;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import model.AnomalyStore;
+import model.GeoCoord;
+import model.GridPyramid;
+import model.GridSpec;
+import model.GridVertexCache;
+import model.ResourceManager;
+
+/**
+ * HistogramOverlay class displays the anomalies as bars standing on the
+ * globe's surface. The bars are square prisms merged in two meshes, one for
+ * the positive anomalies and one for the negative ones. They stand on the
+ * centers of the GridSpec of a level of the collection's GridPyramid.
+ *
+ * Both meshes contain a prism per cell : a year change only moves vertices
+ * in place (one points-array update per mesh). A bar which isn't displayed
+ * by a mesh is collapsed on its base center, so it has no visible face.
+ *
+ * The bar heights of the years are kept in a FrameCache, the years ahead
+ * of the displayed one being computed in background. Only the bars the
+ * camera can see are moved : the others catch up with the displayed frame
+ * when they rotate into view (or grow above the horizon).
+ *
+ * @author Antonin
+ */
+public class HistogramOverlay extends Group implements AnomalyOverlay<float[]> {
+    private static final float SURFACE_RADIUS = 1.0f;
+    private static final double BAR_HALF_WIDTH = 0.15;    // in grid steps
+
+    // the heights are floored to 2 decimals
+    private static final float HEIGHT_STEPS = 100.f;
+
+    // the frame of a year is one float per bar
+    private static final long FRAME_CACHE_BYTES = 32L << 20;
+    private static final int PREFETCH_YEARS = 24;
+
+    // 4 base vertices then 4 top vertices per bar
+    private static final int VERTICES_PER_BAR = 8;
+
+    // sides (4 quads) and top cap, as quads of vertex offsets (counter-clockwise from outside)
+    private static final int[][] BAR_QUADS = {
+        {0, 1, 5, 4}, {1, 2, 6, 5}, {2, 3, 7, 6}, {3, 0, 4, 7}, {4, 5, 6, 7}
+    };
+
+    private final AnomalyStore store;
+    private final GridPyramid.Level level;
+    private final int barCount;
+
+    // corners (2 rows and 2 columns per bar) and centers of the bars
+    private final GridVertexCache corners;
+    private final GridVertexCache centers;
+    private final int lonCount;
+
+    private final TriangleMesh positiveMesh;
+    private final TriangleMesh negativeMesh;
+    private final float[] positivePoints;
+    private final float[] negativePoints;
+
+    // height placed in the meshes, and the one of the displayed frame
+    private final float[] placedHeights;
+    private float[] frameHeights;
+    private final HemisphereCulling culling;
+
+    private final FrameCache<float[]> frames;
+    // scratch of the level's computations, one per computing thread
+    private final ThreadLocal<GridPyramid.Scratch> scratch;
+    private volatile float anoMin = Float.NaN;
+    private volatile float anoMax = Float.NaN;
+    private int frameYearCount;
+    private int lastYear;
+
+    /**
+     * Builds a bar for every cell of a level of the collection.
+     *
+     * @param rm the collection of anomalies to display.
+     * @param level the level of the collection's GridPyramid to display.
+     * @param positiveMaterial the material of the positive anomalies' bars.
+     * @param negativeMaterial the material of the negative anomalies' bars.
+     */
+    public HistogramOverlay(ResourceManager rm, GridPyramid.Level level,
+                            PhongMaterial positiveMaterial, PhongMaterial negativeMaterial) {
+        this.store = rm.getAnomalyStore();
+        this.level = level;
+
+        final GridSpec grid = level.getGridSpec();
+        final int latCount = grid.getLatCount();
+        lonCount = grid.getLonCount();
+        barCount = grid.getCellCount();
+
+        centers = GridVertexCache.of(grid.getLatOrigin(), grid.getLonOrigin(),
+                                     grid.getLatStep(), grid.getLonStep(), latCount, lonCount);
+
+        final double latHalfWidth = BAR_HALF_WIDTH * grid.getLatStep();
+        final double lonHalfWidth = BAR_HALF_WIDTH * grid.getLonStep();
+        float[] cornerLats = new float[2 * latCount];
+        for (int i = 0; i < latCount; i++) {
+            cornerLats[2 * i] = GeoCoord.clampLat(grid.getRowLat(i) - latHalfWidth);
+            cornerLats[2 * i + 1] = GeoCoord.clampLat(grid.getRowLat(i) + latHalfWidth);
+        }
+        float[] cornerLons = new float[2 * lonCount];
+        for (int j = 0; j < lonCount; j++) {
+            cornerLons[2 * j] = (float) (grid.getColumnLon(j) - lonHalfWidth);
+            cornerLons[2 * j + 1] = (float) (grid.getColumnLon(j) + lonHalfWidth);
+        }
+        corners = new GridVertexCache(cornerLats, cornerLons);
+
+        int[] faces = createFaces(barCount);
+
+        positivePoints = new float[barCount * VERTICES_PER_BAR * 3];
+        negativePoints = new float[barCount * VERTICES_PER_BAR * 3];
+        positiveMesh = createMesh(positivePoints, faces);
+        negativeMesh = createMesh(negativePoints, faces);
+
+        MeshView positiveView = new MeshView(positiveMesh);
+        positiveView.setMaterial(positiveMaterial);
+        MeshView negativeView = new MeshView(negativeMesh);
+        negativeView.setMaterial(negativeMaterial);
+
+        getChildren().addAll(positiveView, negativeView);
+
+        placedHeights = new float[barCount];
+        Arrays.fill(placedHeights, Float.NaN);
+        culling = new HemisphereCulling(grid, centers);
+
+        // every bar starts hidden
+        applyFrame(new float[barCount]);
+
+        scratch = ThreadLocal.withInitial(level::newScratch);
+        frames = new FrameCache<>(year -> computeHeights(year, 0), frame -> 4L * frame.length,
+                FRAME_CACHE_BYTES, PREFETCH_YEARS);
+        setRange(rm.getMinTempAnomaly(), rm.getMaxTempAnomaly());
+    }
+
+    /**
+     * Creates the faces of every bar, with outward facing triangles.
+     */
+    private int[] createFaces(int barCount) {
+        // The winding of the color mode's quads faces outward : the first
+        // bar (with a nominal height) tells which order matches it.
+        boolean flip = barCount > 0 && !facesOutward(0);
+
+        int[] faces = new int[barCount * BAR_QUADS.length * 2 * 6];
+        int f = 0;
+        for (int bar = 0; bar < barCount; bar++) {
+            int first = bar * VERTICES_PER_BAR;
+            for (int[] quad : BAR_QUADS) {
+                int a = first + quad[0], b = first + quad[1], c = first + quad[2], d = first + quad[3];
+                f = putTriangle(faces, f, a, flip ? c : b, flip ? b : c);
+                f = putTriangle(faces, f, a, flip ? d : c, flip ? c : d);
+            }
+        }
+        return faces;
+    }
+
+    // with the points format (x, y, z) and a single texture coordinate
+    private static int putTriangle(int[] faces, int f, int a, int b, int c) {
+        faces[f++] = a; faces[f++] = 0;
+        faces[f++] = b; faces[f++] = 0;
+        faces[f++] = c; faces[f++] = 0;
+        return f;
+    }
+
+    /**
+     * Tells whether the top cap of a bar, taken in BAR_QUADS order, has the
+     * same winding as GeometryManager.createQuadrilateral's outward quads.
+     */
+    private boolean facesOutward(int bar) {
+        // createQuadrilateral : (topRight, topLeft, bottomLeft) seen from outside
+        float[] tr = corner(bar, 2), tl = corner(bar, 3), bl = corner(bar, 0);
+        float[] capA = corner(bar, 0), capB = corner(bar, 1), capC = corner(bar, 2);
+
+        double reference = orientation(tr, tl, bl, bar);
+        double cap = orientation(capA, capB, capC, bar);
+        return reference * cap > 0;
+    }
+
+    // corners in counter-clockwise order : (-lat, -lon), (-lat, +lon), (+lat, +lon), (+lat, -lon)
+    private int cornerVertex(int bar, int k) {
+        int latIndex = 2 * (bar / lonCount) + (k >= 2 ? 1 : 0);
+        int lonIndex = 2 * (bar % lonCount) + (k == 1 || k == 2 ? 1 : 0);
+        return corners.vertexIndex(latIndex, lonIndex);
+    }
+
+    private float[] corner(int bar, int k) {
+        int vertex = cornerVertex(bar, k);
+        return new float[] {corners.getX(vertex), corners.getY(vertex), corners.getZ(vertex)};
+    }
+
+    // sign of the triangle's normal along the bar axis
+    private double orientation(float[] a, float[] b, float[] c, int bar) {
+        double ux = b[0] - a[0], uy = b[1] - a[1], uz = b[2] - a[2];
+        double vx = c[0] - a[0], vy = c[1] - a[1], vz = c[2] - a[2];
+        double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+        return nx * centers.getX(bar) + ny * centers.getY(bar) + nz * centers.getZ(bar);
+    }
+
+    private static TriangleMesh createMesh(float[] points, int[] faces) {
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points);
+        mesh.getTexCoords().setAll(0, 0);
+        mesh.getFaces().setAll(faces);
+        return mesh;
+    }
+
+    /**
+     * Tells whether the overlay displays the anomalies of this collection.
+     *
+     * @param rm a collection of anomalies.
+     * @return true if the overlay was built for the collection's store.
+     */
+    @Override
+    public boolean isBuiltFor(ResourceManager rm) {
+        return rm.getAnomalyStore() == store;
+    }
+
+    /**
+     * @return the level of the GridPyramid displayed by the overlay.
+     */
+    public GridPyramid.Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the anomalies reaching a globe radius. The cached frames are
+     * discarded if the range changes or if years were appended.
+     *
+     * @param anoMin the minimum anomaly of the collection.
+     * @param anoMax the maximum anomaly of the collection.
+     */
+    @Override
+    public void setRange(float anoMin, float anoMax) {
+        if (Float.compare(anoMin, this.anoMin) != 0 || Float.compare(anoMax, this.anoMax) != 0) {
+            this.anoMin = anoMin;
+            this.anoMax = anoMax;
+            frames.clear();
+        }
+
+        // the appended years were cached without anomalies
+        if (store.getYearCount() != frameYearCount) {
+            frameYearCount = store.getYearCount();
+            frames.clear();
+        }
+    }
+
+    @Override
+    public float[] frameOf(int year) {
+        return frames.get(year);
+    }
+
+    @Override
+    public float[] frameOf(int year, float fraction) {
+        // the frames between two years aren't cached
+        return fraction > 0 ? computeHeights(year, fraction) : frameOf(year);
+    }
+
+    @Override
+    public void prefetch(int year) {
+        int direction = year < lastYear ? -1 : 1;
+        lastYear = year;
+        if (frameYearCount > 0) {
+            frames.prefetch(year, direction, store.getYear(0), store.getYear(frameYearCount - 1));
+        }
+    }
+
+    /**
+     * Computes the signed height of every bar for the given year, the
+     * extreme anomalies of the range reaching a globe radius. Can be called
+     * from any thread, each thread interpolating in its own scratch.
+     *
+     * @param year the year to display.
+     * @param fraction the position toward the following year (0 to 1), the
+     * anomalies being interpolated.
+     * @return the height of each bar, negative for a negative anomaly, 0 for "NA".
+     */
+    public float[] computeHeights(int year, float fraction) {
+        final float min = anoMin;
+        final float max = anoMax;
+        int yearIndex = store.yearIndexOf(year);
+
+        float[] heights = new float[barCount];
+        if (yearIndex < 0) {
+            return heights;
+        }
+
+        // normalised by sign, then floored to 2 decimals (no anomaly or "NA" : 0)
+        level.copyYearSlice(yearIndex, fraction, heights, scratch.get());
+        SliceKernels.normalise(heights, min, max, heights, barCount);
+        return SliceKernels.truncate(heights, HEIGHT_STEPS, heights, barCount);
+    }
+
+    /**
+     * Moves the top of the visible bars. A positive height is displayed by
+     * the positive mesh, a negative one by the negative mesh ; a null or NaN
+     * height hides the bar.
+     *
+     * @param barHeights the signed height of each bar, in globe radius.
+     */
+    @Override
+    public void applyFrame(float[] barHeights) {
+        frameHeights = barHeights;
+        updateVisibleBars();
+    }
+
+    /**
+     * Moves the bars which rotated into view to the displayed frame.
+     *
+     * @param viewpoint the camera position, null to update every bar.
+     */
+    @Override
+    public void setViewpoint(Point3D viewpoint) {
+        if (culling.update(viewpoint)) {
+            updateVisibleBars();
+        }
+    }
+
+    private void updateVisibleBars() {
+        int touched = 0;
+        for (int bar = 0; bar < barCount; bar++) {
+            float height = frameHeights[bar];
+            float placed = placedHeights[bar];
+
+            // a bar is moved if its new top is visible, or its former one (NaN : never placed)
+            boolean visible = culling.isVisible(bar, Math.abs(height))
+                    || Float.isNaN(placed) || culling.isVisible(bar, Math.abs(placed));
+
+            if (visible && Float.compare(height, placed) != 0) {
+                placeBar(positivePoints, bar, height > 0 ? height : 0);
+                placeBar(negativePoints, bar, height < 0 ? -height : 0);
+                placedHeights[bar] = height;
+                touched++;
+            }
+        }
+
+        if (touched > 0) {
+            positiveMesh.getPoints().set(0, positivePoints, 0, positivePoints.length);
+            negativeMesh.getPoints().set(0, negativePoints, 0, negativePoints.length);
+        }
+        RenderMetrics.recordCellsTouched(touched);
+    }
+
+    private void placeBar(float[] points, int bar, float height) {
+        int p = bar * VERTICES_PER_BAR * 3;
+
+        if (!(height > 0)) {
+            // collapse the whole bar on its base center
+            for (int v = 0; v < VERTICES_PER_BAR; v++, p += 3) {
+                centers.copyPoint(bar, SURFACE_RADIUS, points, p);
+            }
+            return;
+        }
+
+        final float top = SURFACE_RADIUS + height;
+        for (int level = 0; level < 2; level++) {
+            float radius = level == 0 ? SURFACE_RADIUS : top;
+            for (int k = 0; k < 4; k++, p += 3) {
+                corners.copyPoint(cornerVertex(bar, k), radius, points, p);
+            }
+        }
+    }
+}
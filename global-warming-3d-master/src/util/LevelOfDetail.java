@@ -0,0 +1,95 @@
+package util;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.value.ObservableDoubleValue;
+import model.GridPyramid;
+import model.GridSpec;
+
+/**
+ * LevelOfDetail class chooses the level of the GridPyramid to display from
+ * the camera's distance : the finest level whose cells still cover a few
+ * pixels of the viewport.
+ *
+ * The level only changes once its cells are clearly bigger or smaller than
+ * the threshold, so that zooming around it doesn't switch back and forth.
+ *
+ * @author Antonin
+ */
+public class LevelOfDetail {
+    private static final double GLOBE_RADIUS = 1.0;
+
+    // a level is displayed while its cells cover at least this size on screen
+    private static final double MIN_CELL_PIXELS = 4.0;
+
+    // relative margin around the threshold before switching level
+    private static final double HYSTERESIS = 0.25;
+
+    private final CameraManager cameraManager;
+    private final double fieldOfView;
+    private final ObservableDoubleValue viewportHeight;
+
+    // cell size (in degrees) of each level, the finest first
+    private double[] levelSteps = new double[] {1.0};
+
+    private final ReadOnlyIntegerWrapper level = new ReadOnlyIntegerWrapper(0);
+
+    /**
+     * @param cameraManager the manager of the camera looking at the globe.
+     * @param fieldOfView the vertical field of view of the camera, in degrees.
+     * @param viewportHeight the height of the 3D view, in pixels.
+     */
+    public LevelOfDetail(CameraManager cameraManager, double fieldOfView, ObservableDoubleValue viewportHeight) {
+        this.cameraManager = cameraManager;
+        this.fieldOfView = fieldOfView;
+        this.viewportHeight = viewportHeight;
+
+        cameraManager.zoomProperty().addListener((obs, oldValue, newValue) -> update());
+        viewportHeight.addListener((obs, oldValue, newValue) -> update());
+    }
+
+    /**
+     * Sets the levels to choose from, e.g. after a new collection is loaded.
+     *
+     * @param pyramid the pyramid of the displayed collection.
+     */
+    public void setLevels(GridPyramid pyramid) {
+        levelSteps = new double[pyramid.getLevelCount()];
+        for (int l = 0; l < levelSteps.length; l++) {
+            GridSpec grid = pyramid.getLevel(l).getGridSpec();
+            levelSteps[l] = Math.max(grid.getLatStep(), grid.getLonStep());
+        }
+        level.set(Math.min(level.get(), levelSteps.length - 1));
+        update();
+    }
+
+    /**
+     * Size on screen of a level's cell, at the point of the globe facing
+     * the camera.
+     */
+    private double cellPixels(int l) {
+        double height = Math.max(cameraManager.getDistance() - GLOBE_RADIUS, 1e-6);
+        double cellAngle = Math.toRadians(levelSteps[l]) * GLOBE_RADIUS / height;
+        return cellAngle / Math.toRadians(fieldOfView) * viewportHeight.get();
+    }
+
+    private void update() {
+        int target = level.get();
+
+        while (target > 0 && cellPixels(target - 1) >= MIN_CELL_PIXELS * (1 + HYSTERESIS)) {
+            target--;
+        }
+        while (target < levelSteps.length - 1 && cellPixels(target) < MIN_CELL_PIXELS * (1 - HYSTERESIS)) {
+            target++;
+        }
+        level.set(target);
+    }
+
+    public int getLevel() {
+        return level.get();
+    }
+
+    public ReadOnlyIntegerProperty levelProperty() {
+        return level.getReadOnlyProperty();
+    }
+}
@@ -0,0 +1,92 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * MetricHistogram class counts the values recorded by several threads, in
+ * buckets of powers of two : bucket i holds the values from 2^(i-1) to
+ * 2^i - 1, the bucket 0 holding the values under 1.
+ *
+ * Recording is lock-free and allocation-free (a few atomic operations), so
+ * it can be called from the render loop. The percentiles are read from the
+ * buckets : they are the upper bound of their bucket.
+ *
+ * @author Antonin
+ */
+public final class MetricHistogram {
+    private static final int BUCKET_COUNT = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private volatile long last;
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, the negative ones being counted as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(BUCKET_COUNT - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        last = value;
+
+        long previous = max.get();
+        while (value > previous && !max.compareAndSet(previous, value)) {
+            previous = max.get();
+        }
+    }
+
+    public long getCount() { return count.get(); }
+
+    public long getMax() { return max.get(); }
+
+    public long getLast() { return last; }
+
+    /**
+     * @return the mean of the recorded values, 0 if there is none.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n > 0 ? (double) sum.get() / n : 0;
+    }
+
+    /**
+     * Returns a percentile of the recorded values, rounded to the upper
+     * bound of its bucket.
+     *
+     * @param percentile the percentile, from 0 to 100.
+     * @return the value under which this percentage of values is, 0 if
+     * there is none.
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        long rank = (long) Math.ceil(n * percentile / 100);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return i == 0 ? 0 : Math.min(max.get(), (1L << i) - 1);
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets the recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+        last = 0;
+    }
+}
@@ -0,0 +1,30 @@
+package util;
+
+/**
+ * PaletteIndexer interface gives the palette index of an anomaly, for a
+ * ColorMap and the anomalies range of a collection (see ColorMap.indexer).
+ *
+ * @author Antonin
+ */
+@FunctionalInterface
+public interface PaletteIndexer {
+
+    /**
+     * @param anomaly the anomaly to color.
+     * @return its palette index, ColorMap.NO_ANOMALY_INDEX for "NA".
+     */
+    int indexOf(float anomaly);
+
+    /**
+     * Gives the palette index of several anomalies.
+     *
+     * @param anomalies the anomalies to color.
+     * @param dst the destination array.
+     * @param length the number of anomalies.
+     */
+    default void indexAll(float[] anomalies, byte[] dst, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[i] = (byte) indexOf(anomalies[i]);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package util;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.value.ObservableDoubleValue;
+import model.AnimationModel;
+
+/**
+ * PlaybackScheduler class moves a playhead through the years at the speed
+ * of an AnimationModel.
+ *
+ * The playhead advances by fixed simulation steps, whatever the duration
+ * of the frames : its position only depends on the elapsed time, and it is
+ * written once per pulse with its fractional part (e.g. 1950.25), so the
+ * anomalies can be interpolated between two years. Rendering is left to
+ * the playhead's listeners (see RenderPipeline, which drops the frames it
+ * can't compute in time instead of slowing the playback down).
+ *
+ * @author Antonin
+ */
+public class PlaybackScheduler extends AnimationTimer {
+    // fixed simulation step, in seconds
+    private static final double TIME_STEP = 1.0 / 240;
+
+    // longer pulses (e.g. the window was hidden) are shortened
+    private static final double MAX_PULSE_DURATION = 0.5;
+
+    private final AnimationModel animation;
+    private final DoubleProperty playhead;
+    private final ObservableDoubleValue lastYear;
+    private final Runnable onFinished;
+
+    private long lastPulse;
+    private double accumulator;
+    private double position;
+
+    /**
+     * @param animation the speed and playing state of the playback.
+     * @param playhead the position of the playback, in years.
+     * @param lastYear the position where the playback ends.
+     * @param onFinished called when the playback stops.
+     */
+    public PlaybackScheduler(AnimationModel animation, DoubleProperty playhead,
+            ObservableDoubleValue lastYear, Runnable onFinished) {
+        this.animation = animation;
+        this.playhead = playhead;
+        this.lastYear = lastYear;
+        this.onFinished = onFinished;
+    }
+
+    @Override
+    public void start() {
+        lastPulse = -1;
+        accumulator = 0;
+        position = playhead.get();
+        super.start();
+    }
+
+    @Override
+    public void handle(long now) {
+        if (!animation.isPlaying() || position >= lastYear.get()) {
+            stop();
+            onFinished.run();
+            return;
+        }
+
+        // the playhead was moved by the user (e.g. slider drag)
+        if (playhead.get() != position) {
+            position = playhead.get();
+        }
+
+        if (lastPulse >= 0) {
+            accumulator += Math.min((now - lastPulse) / 1e9, MAX_PULSE_DURATION);
+        }
+        lastPulse = now;
+
+        final double yearsPerStep = animation.getYearsPerSecond() * TIME_STEP;
+        while (accumulator >= TIME_STEP) {
+            position += yearsPerStep;
+            accumulator -= TIME_STEP;
+        }
+
+        position = Math.min(position, lastYear.get());
+        playhead.set(position);
+    }
+}
@@ -0,0 +1,162 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * RenderMetrics class records the timings of the globe's rendering :
+ * <ul>
+ * <li>the compute and apply stages of a year's display (drawAnomalies or
+ * the RenderPipeline),</li>
+ * <li>the number of cells (quads or bars) written by each update of an
+ * overlay,</li>
+ * <li>the interval between two frames, measured by a FrameProbe,</li>
+ * <li>the number of nodes of the anomalies' group and of the 3D scene.</li>
+ * </ul>
+ * The values are kept in MetricHistograms : recording is lock-free and
+ * allocation-free. They are published as an MBean by {@link #register()}.
+ *
+ * @author Antonin
+ */
+public final class RenderMetrics implements RenderMetricsMBean {
+    public static final String OBJECT_NAME = "globalwarming3d:type=RenderMetrics";
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private static final RenderMetrics INSTANCE = new RenderMetrics();
+
+    private final MetricHistogram computeNanos = new MetricHistogram();
+    private final MetricHistogram applyNanos = new MetricHistogram();
+    private final MetricHistogram cellsTouched = new MetricHistogram();
+    private final MetricHistogram frameIntervals = new MetricHistogram();
+
+    private volatile int anomalyGroupChildren;
+    private volatile int rootNodeCount;
+
+    private RenderMetrics() {}
+
+    /**
+     * @return the metrics of the application.
+     */
+    public static RenderMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publishes the metrics in the platform MBean server, once.
+     */
+    public static synchronized void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Impossible de publier les métriques d'affichage : " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param nanos the duration of a frame's computation.
+     */
+    public static void recordCompute(long nanos) {
+        INSTANCE.computeNanos.record(nanos);
+    }
+
+    /**
+     * @param nanos the duration of a frame's writing in the scene graph.
+     */
+    public static void recordApply(long nanos) {
+        INSTANCE.applyNanos.record(nanos);
+    }
+
+    /**
+     * @param cells the number of cells written by an overlay's update.
+     */
+    public static void recordCellsTouched(int cells) {
+        INSTANCE.cellsTouched.record(cells);
+    }
+
+    /**
+     * @param nanos the time between two frames.
+     */
+    public static void recordFrameInterval(long nanos) {
+        INSTANCE.frameIntervals.record(nanos);
+    }
+
+    /**
+     * @param anomalyGroupChildren the number of children of the anomalies' group.
+     * @param rootNodeCount the number of nodes of the 3D scene.
+     */
+    public static void recordNodeCounts(int anomalyGroupChildren, int rootNodeCount) {
+        INSTANCE.anomalyGroupChildren = anomalyGroupChildren;
+        INSTANCE.rootNodeCount = rootNodeCount;
+    }
+
+    private static double millis(double nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getComputeCount() { return computeNanos.getCount(); }
+
+    @Override
+    public double getComputeMeanMillis() { return millis(computeNanos.getMean()); }
+
+    @Override
+    public double getComputeMaxMillis() { return millis(computeNanos.getMax()); }
+
+    @Override
+    public long getApplyCount() { return applyNanos.getCount(); }
+
+    @Override
+    public double getApplyMeanMillis() { return millis(applyNanos.getMean()); }
+
+    @Override
+    public double getApplyMaxMillis() { return millis(applyNanos.getMax()); }
+
+    @Override
+    public double getApplyP99Millis() { return millis(applyNanos.getPercentile(99)); }
+
+    @Override
+    public long getUpdateCount() { return cellsTouched.getCount(); }
+
+    @Override
+    public double getCellsTouchedMean() { return cellsTouched.getMean(); }
+
+    @Override
+    public long getCellsTouchedMax() { return cellsTouched.getMax(); }
+
+    @Override
+    public long getCellsTouchedLast() { return cellsTouched.getLast(); }
+
+    @Override
+    public long getFrameCount() { return frameIntervals.getCount(); }
+
+    @Override
+    public double getFrameIntervalMeanMillis() { return millis(frameIntervals.getMean()); }
+
+    @Override
+    public double getFrameIntervalP50Millis() { return millis(frameIntervals.getPercentile(50)); }
+
+    @Override
+    public double getFrameIntervalP99Millis() { return millis(frameIntervals.getPercentile(99)); }
+
+    @Override
+    public double getFrameIntervalMaxMillis() { return millis(frameIntervals.getMax()); }
+
+    @Override
+    public int getAnomalyGroupChildren() { return anomalyGroupChildren; }
+
+    @Override
+    public int getRootNodeCount() { return rootNodeCount; }
+
+    @Override
+    public void reset() {
+        computeNanos.reset();
+        applyNanos.reset();
+        cellsTouched.reset();
+        frameIntervals.reset();
+    }
+}
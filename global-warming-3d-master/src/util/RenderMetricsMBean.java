@@ -0,0 +1,54 @@
+package util;
+
+/**
+ * Management interface of the render metrics (see RenderMetrics). The
+ * durations are in milliseconds.
+ *
+ * @author Antonin
+ */
+public interface RenderMetricsMBean {
+
+    long getComputeCount();
+
+    double getComputeMeanMillis();
+
+    double getComputeMaxMillis();
+
+    long getApplyCount();
+
+    double getApplyMeanMillis();
+
+    double getApplyMaxMillis();
+
+    double getApplyP99Millis();
+
+    long getUpdateCount();
+
+    double getCellsTouchedMean();
+
+    long getCellsTouchedMax();
+
+    /**
+     * @return the number of cells written by the last update.
+     */
+    long getCellsTouchedLast();
+
+    long getFrameCount();
+
+    double getFrameIntervalMeanMillis();
+
+    double getFrameIntervalP50Millis();
+
+    double getFrameIntervalP99Millis();
+
+    double getFrameIntervalMaxMillis();
+
+    int getAnomalyGroupChildren();
+
+    int getRootNodeCount();
+
+    /**
+     * Forgets the recorded values, the node counts excepted.
+     */
+    void reset();
+}
@@ -0,0 +1,275 @@
+package util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javafx.application.Platform;
+import javafx.geometry.Point3D;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import model.GlobeAnomaliesRepresentation;
+import model.ResourceManager;
+
+/**
+ * RenderPipeline class displays the anomalies of a year without computing
+ * them on the FX thread.
+ *
+ * A request is computed on a background thread (compute stage), then
+ * written in the scene graph by Platform.runLater (apply stage). Requests
+ * are coalesced : one frame is computed at a time, and while it is being
+ * computed only the latest request is kept. The newest computed frame is
+ * always applied, even if newer requests are waiting, so the globe keeps
+ * moving during a playback or a drag : the requests which arrived during a
+ * computation are dropped instead. At most one apply is pending on the FX
+ * thread.
+ * A change of display mode, level or trends' period starts a new
+ * generation (as does invalidate()) : the frames of an older generation
+ * are dropped, after their computation and before their application, so
+ * they can't overwrite a newer display. The overlays are built and
+ * normalised by the compute stage too.
+ * The overlays display the level of detail set by setLevel(), from the
+ * viewpoint set by setViewpoint().
+ *
+ * @author Antonin
+ */
+public class RenderPipeline {
+    private static final ExecutorService COMPUTE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "render-compute");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Group anoGroup;
+    private final ResourceManager rm;
+
+    // latest request, waiting for the compute stage
+    private final AtomicReference<Request> pendingRequest = new AtomicReference<>();
+    private final AtomicBoolean computing = new AtomicBoolean();
+
+    // latest computed frame, waiting for the apply stage
+    private final AtomicReference<Computed<?>> pendingApply = new AtomicReference<>();
+
+    // number of the latest request (FX thread)
+    private long lastRequest;
+
+    // incremented when the requested frames change of nature : the frames
+    // of an older generation are dropped (written by the FX thread)
+    private volatile long generation;
+
+    // display settings of the latest request (FX thread)
+    private GlobeAnomaliesRepresentation lastDisplayType;
+    private int lastLevel = -1;
+    private int lastTrendStart;
+
+    // number of the displayed frame's request (FX thread)
+    private long appliedRequest;
+
+    // level of the GridPyramid to display (FX thread)
+    private int level;
+
+    // first year of the trends' period (FX thread)
+    private int trendStart;
+
+    // camera position, null if unknown (FX thread)
+    private Point3D viewpoint;
+
+    /**
+     * @param anoGroup the group displaying the anomalies.
+     * @param rm the collection of anomalies.
+     */
+    public RenderPipeline(Group anoGroup, ResourceManager rm) {
+        this.anoGroup = anoGroup;
+        this.rm = rm;
+        this.trendStart = rm.getMinYear();
+    }
+
+    /**
+     * Sets the level of the GridPyramid displayed by the next requests.
+     *
+     * @param level the level, 0 being the finest.
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the first year of the period displayed in trend mode, the last
+     * one being the requested year.
+     *
+     * @param year the first year of the period.
+     */
+    public void setTrendStart(int year) {
+        this.trendStart = year;
+    }
+
+    /**
+     * Sets the camera position : the displayed overlay updates the cells
+     * which rotated into view (FX thread).
+     *
+     * @param viewpoint the camera position in the globe's coordinates.
+     */
+    public void setViewpoint(Point3D viewpoint) {
+        this.viewpoint = viewpoint;
+
+        for (Node node : anoGroup.getChildren()) {
+            if (node instanceof AnomalyOverlay) {
+                ((AnomalyOverlay<?>) node).setViewpoint(viewpoint);
+            }
+        }
+    }
+
+    /**
+     * Requests the display of a year (FX thread). The previous requests
+     * which aren't applied yet are dropped.
+     *
+     * @param year the year to display.
+     * @param displayType the display mode.
+     */
+    public void request(int year, GlobeAnomaliesRepresentation displayType) {
+        request((double) year, displayType);
+    }
+
+    /**
+     * Requests the display of a position between two years (FX thread), the
+     * anomalies being interpolated. The previous requests which aren't
+     * applied yet are dropped.
+     *
+     * @param playhead the position, e.g. 1950.25.
+     * @param displayType the display mode.
+     */
+    public void request(double playhead, GlobeAnomaliesRepresentation displayType) {
+        if (displayType != lastDisplayType || level != lastLevel
+                || (displayType == GlobeAnomaliesRepresentation.BY_TREND && trendStart != lastTrendStart)) {
+            lastDisplayType = displayType;
+            lastLevel = level;
+            lastTrendStart = trendStart;
+            generation++;
+        }
+
+        int year = (int) Math.floor(playhead);
+        float fraction = (float) (playhead - year);
+        pendingRequest.set(new Request(++lastRequest, generation, displayType, level, trendStart, year, fraction));
+
+        if (computing.compareAndSet(false, true)) {
+            COMPUTE_EXECUTOR.execute(this::computeStage);
+        }
+    }
+
+    /**
+     * Drops the frames requested so far and not applied yet, e.g. when the
+     * collection's data changed (FX thread).
+     */
+    public void invalidate() {
+        generation++;
+    }
+
+    private void computeStage() {
+        try {
+            Request request;
+            while ((request = pendingRequest.getAndSet(null)) != null) {
+                if (request.generation != generation) {
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                Computed<?> computed = request.compute(anoGroup, rm);
+                RenderMetrics.recordCompute(System.nanoTime() - start);
+
+                // superseded during its computation
+                if (computed.generation != generation) {
+                    continue;
+                }
+                if (pendingApply.getAndSet(computed) == null) {
+                    Platform.runLater(this::applyStage);
+                }
+            }
+        } finally {
+            computing.set(false);
+        }
+
+        // a request may have arrived between the last poll and the flag reset
+        if (pendingRequest.get() != null && computing.compareAndSet(false, true)) {
+            COMPUTE_EXECUTOR.execute(this::computeStage);
+        }
+    }
+
+    private void applyStage() {
+        Computed<?> computed = pendingApply.getAndSet(null);
+
+        // the frames are computed in order : only an older one is dropped
+        if (computed != null && computed.number > appliedRequest && computed.generation == generation) {
+            appliedRequest = computed.number;
+            long start = System.nanoTime();
+            GeometryManager.attachOverlay(anoGroup, computed.overlay);
+            computed.overlay.setViewpoint(viewpoint);
+            computed.apply();
+            RenderMetrics.recordApply(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * A year to display, with the display settings of its request.
+     */
+    private static final class Request {
+        final long number;
+        final long generation;
+        final GlobeAnomaliesRepresentation displayType;
+        final int level;
+        final int trendStart;
+        final int year;
+        final float fraction;
+
+        Request(long number, long generation, GlobeAnomaliesRepresentation displayType,
+                int level, int trendStart, int year, float fraction) {
+            this.number = number;
+            this.generation = generation;
+            this.displayType = displayType;
+            this.level = level;
+            this.trendStart = trendStart;
+            this.year = year;
+            this.fraction = fraction;
+        }
+
+        // the overlay is built (on first use) and normalised here, off the FX thread
+        Computed<?> compute(Group anoGroup, ResourceManager rm) {
+            AnomalyOverlay<?> overlay = GeometryManager.overlayOf(anoGroup, rm, displayType, level);
+            if (overlay instanceof TrendOverlay) {
+                ((TrendOverlay) overlay).setPeriodStart(trendStart);
+            }
+            return compute(overlay);
+        }
+
+        private <T> Computed<T> compute(AnomalyOverlay<T> overlay) {
+            return new Computed<>(number, generation, overlay, year, overlay.frameOf(year, fraction));
+        }
+    }
+
+    /**
+     * A computed frame, waiting to be applied.
+     */
+    private static final class Computed<T> {
+        final long number;
+        final long generation;
+        final AnomalyOverlay<T> overlay;
+        final int year;
+        final T frame;
+
+        Computed(long number, long generation, AnomalyOverlay<T> overlay, int year, T frame) {
+            this.number = number;
+            this.generation = generation;
+            this.overlay = overlay;
+            this.year = year;
+            this.frame = frame;
+        }
+
+        void apply() {
+            overlay.applyFrame(frame);
+            overlay.prefetch(year);
+        }
+    }
+}
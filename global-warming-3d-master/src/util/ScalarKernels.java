@@ -0,0 +1,113 @@
+package util;
+
+/**
+ * ScalarKernels class implements SliceKernels with plain loops. Its range
+ * methods also compute the tails left by VectorKernels.
+ *
+ * @author Antonin
+ */
+class ScalarKernels implements SliceKernels.Impl {
+
+    @Override
+    public void normalise(float[] src, float anoMin, float anoMax, float[] dst, int length) {
+        normalise(src, anoMin, anoMax, dst, 0, length);
+    }
+
+    final void normalise(float[] src, float anoMin, float anoMax, float[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            float anomaly = src[i];
+            dst[i] = anomaly > 0 ? anomaly / anoMax : anomaly < 0 ? anomaly / -anoMin : 0.f;
+        }
+    }
+
+    @Override
+    public void truncate(float[] src, float steps, float[] dst, int length) {
+        truncate(src, steps, dst, 0, length);
+    }
+
+    final void truncate(float[] src, float steps, float[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            // the cast truncates toward 0, and gives 0 for NaN
+            dst[i] = (int) (src[i] * steps) / steps;
+        }
+    }
+
+    @Override
+    public void paletteIndexes(float[] src, byte[] lut, byte missingIndex, byte[] dst, int length) {
+        paletteIndexes(src, lut, missingIndex, dst, 0, length);
+    }
+
+    final void paletteIndexes(float[] src, byte[] lut, byte missingIndex, byte[] dst, int from, int to) {
+        final float half = lut.length / 2;
+        for (int i = from; i < to; i++) {
+            float u = src[i];
+            float entry = u * half + half;
+            if (u > 0) {
+                dst[i] = lut[(int) Math.min(entry, lut.length - 1)];
+            } else if (u < 0) {
+                dst[i] = lut[(int) Math.max(0.f, Math.min(entry, half - 1))];
+            } else {
+                dst[i] = missingIndex;      // no anomaly or "NA"
+            }
+        }
+    }
+
+    @Override
+    public float min(float[] src, int from, int to) {
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            // NaN comparisons are always false : "NA" are ignored
+            min = src[i] < min ? src[i] : min;
+        }
+        return min;
+    }
+
+    @Override
+    public float max(float[] src, int from, int to) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            max = src[i] > max ? src[i] : max;
+        }
+        return max;
+    }
+
+    @Override
+    public double sum(float[] src, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            if (!Float.isNaN(src[i])) {
+                sum += src[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int count(float[] src, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (!Float.isNaN(src[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void interpolate(float[] from, float[] to, float fraction, float[] dst, int length) {
+        interpolate(from, to, fraction, dst, 0, length);
+    }
+
+    final void interpolate(float[] from, float[] to, float fraction, float[] dst, int start, int end) {
+        for (int i = start; i < end; i++) {
+            float a = from[i];
+            float b = to[i];
+
+            if (Float.isNaN(a) || Float.isNaN(b)) {
+                dst[i] = fraction < 0.5f ? a : b;
+            } else {
+                dst[i] = a + (b - a) * fraction;
+            }
+        }
+    }
+}
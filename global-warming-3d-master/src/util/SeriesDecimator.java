@@ -0,0 +1,78 @@
+package util;
+
+/**
+ * SeriesDecimator class reduces a series to a number of points a chart can
+ * display, keeping its shape : the peaks and the drops stay visible.
+ *
+ * It implements the "Largest-Triangle-Three-Buckets" algorithm (Steinarsson,
+ * 2013) : the first and last points are kept, the others are split in
+ * buckets of the same size and each bucket keeps the point forming the
+ * largest triangle with the point kept before it and the mean of the next
+ * bucket.
+ *
+ * @author Antonin
+ */
+public final class SeriesDecimator {
+
+    private SeriesDecimator() {}
+
+    /**
+     * Selects the points of a series to display.
+     *
+     * @param x the abscissas of the points, increasing.
+     * @param y the ordinates of the points.
+     * @param length the number of points of the series.
+     * @param threshold the maximum number of points to keep (at least 3).
+     * @return the indexes of the kept points, increasing.
+     */
+    public static int[] largestTriangleThreeBuckets(double[] x, double[] y, int length, int threshold) {
+        if (threshold >= length || threshold < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] kept = new int[threshold];
+        int count = 0;
+        kept[count++] = 0;
+
+        // buckets between the first and the last points
+        final double bucketSize = (double) (length - 2) / (threshold - 2);
+        int previous = 0;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int from = (int) (bucket * bucketSize) + 1;
+            int to = (int) ((bucket + 1) * bucketSize) + 1;
+
+            // mean of the next bucket (the last point for the last bucket)
+            int nextFrom = to;
+            int nextTo = Math.min((int) ((bucket + 2) * bucketSize) + 1, length);
+            double meanX = 0, meanY = 0;
+            for (int i = nextFrom; i < nextTo; i++) {
+                meanX += x[i];
+                meanY += y[i];
+            }
+            meanX /= nextTo - nextFrom;
+            meanY /= nextTo - nextFrom;
+
+            double maxArea = -1;
+            int selected = from;
+            for (int i = from; i < to; i++) {
+                // twice the area of the triangle, its sign left out
+                double area = Math.abs((x[previous] - meanX) * (y[i] - y[previous])
+                                     - (x[previous] - x[i]) * (meanY - y[previous]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = i;
+                }
+            }
+            kept[count++] = selected;
+            previous = selected;
+        }
+
+        kept[count] = length - 1;
+        return kept;
+    }
+}
@@ -0,0 +1,155 @@
+package util;
+
+/**
+ * SliceKernels class gathers the hot loops over the anomalies of a year
+ * slice or of a cell series : normalisation, quantisation, reductions and
+ * interpolation.
+ *
+ * The kernels use the JDK Vector API when the jdk.incubator.vector module
+ * is loaded (java --add-modules jdk.incubator.vector), and scalar loops
+ * otherwise. Both give the same results, except for the order of the
+ * additions of sum(). "NA" anomalies are Float.NaN.
+ *
+ * @author Antonin
+ */
+public final class SliceKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final Impl IMPL = load();
+
+    private SliceKernels() {}
+
+    private static Impl load() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (Impl) Class.forName("util.VectorKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Calculs vectoriels indisponibles : " + e);
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    /**
+     * @return true if the kernels use the Vector API.
+     */
+    public static boolean isVectorized() {
+        return IMPL.getClass() != ScalarKernels.class;
+    }
+
+    /**
+     * Normalises the anomalies by sign : a positive anomaly is divided by the
+     * maximum, a negative one by the opposite of the minimum.
+     *
+     * @param src the anomalies.
+     * @param anoMin the minimum anomaly (negative).
+     * @param anoMax the maximum anomaly (positive).
+     * @param dst the destination array, may be src.
+     * @param length the number of anomalies.
+     * @return the destination array, from -1 to 1, 0 for no anomaly or "NA".
+     */
+    public static float[] normalise(float[] src, float anoMin, float anoMax, float[] dst, int length) {
+        IMPL.normalise(src, anoMin, anoMax, dst, length);
+        return dst;
+    }
+
+    /**
+     * Truncates values toward 0 to a multiple of 1/steps (e.g. 2 decimals
+     * for 100 steps).
+     *
+     * @param src the values.
+     * @param steps the number of steps per unit.
+     * @param dst the destination array, may be src.
+     * @param length the number of values.
+     * @return the destination array, 0 for "NA".
+     */
+    public static float[] truncate(float[] src, float steps, float[] dst, int length) {
+        IMPL.truncate(src, steps, dst, length);
+        return dst;
+    }
+
+    /**
+     * Quantises normalised anomalies to the palette indexes of a diverging
+     * ColorMap : [-1, 0[ on the first half of its lookup table, ]0, 1] on
+     * the second one.
+     *
+     * @param src the anomalies returned by normalise().
+     * @param lut the lookup table of the map, from -1 to 1.
+     * @param missingIndex the palette index of 0 and "NA".
+     * @param dst the destination array.
+     * @param length the number of anomalies.
+     * @return the destination array.
+     */
+    public static byte[] paletteIndexes(float[] src, byte[] lut, byte missingIndex, byte[] dst, int length) {
+        IMPL.paletteIndexes(src, lut, missingIndex, dst, length);
+        return dst;
+    }
+
+    /**
+     * @return the minimum known value of src[from, to[, or
+     * Float.POSITIVE_INFINITY if there is none.
+     */
+    public static float min(float[] src, int from, int to) {
+        return IMPL.min(src, from, to);
+    }
+
+    /**
+     * @return the maximum known value of src[from, to[, or
+     * Float.NEGATIVE_INFINITY if there is none.
+     */
+    public static float max(float[] src, int from, int to) {
+        return IMPL.max(src, from, to);
+    }
+
+    /**
+     * @return the sum of the known values of src[from, to[.
+     */
+    public static double sum(float[] src, int from, int to) {
+        return IMPL.sum(src, from, to);
+    }
+
+    /**
+     * @return the number of known values of src[from, to[.
+     */
+    public static int count(float[] src, int from, int to) {
+        return IMPL.count(src, from, to);
+    }
+
+    /**
+     * Interpolates linearly between two slices, from + (to - from) * fraction.
+     * A value which is "NA" in one of the slices takes the value of the
+     * nearest one.
+     *
+     * @param from the slice at 0.
+     * @param to the slice at 1.
+     * @param fraction the position between the slices (0 to 1).
+     * @param dst the destination array, may be from or to.
+     * @param length the number of values.
+     * @return the destination array.
+     */
+    public static float[] interpolate(float[] from, float[] to, float fraction, float[] dst, int length) {
+        IMPL.interpolate(from, to, fraction, dst, length);
+        return dst;
+    }
+
+    /**
+     * Implementation of the kernels (see ScalarKernels and VectorKernels).
+     */
+    interface Impl {
+        void normalise(float[] src, float anoMin, float anoMax, float[] dst, int length);
+
+        void truncate(float[] src, float steps, float[] dst, int length);
+
+        void paletteIndexes(float[] src, byte[] lut, byte missingIndex, byte[] dst, int length);
+
+        float min(float[] src, int from, int to);
+
+        float max(float[] src, int from, int to);
+
+        double sum(float[] src, int from, int to);
+
+        int count(float[] src, int from, int to);
+
+        void interpolate(float[] from, float[] to, float fraction, float[] dst, int length);
+    }
+}
@@ -0,0 +1,67 @@
+package util;
+
+import model.GridPyramid;
+import model.ResourceManager;
+import model.TrendMap;
+
+/**
+ * TrendOverlay class colors every cell of the globe by its warming rate
+ * (in °C/decade) over a period, instead of its anomaly of a year.
+ *
+ * The period goes from a start year to the displayed year, so the frame
+ * of a year is the trend map of the period ending (or starting) there.
+ * The trend maps are cached by the ResourceManager, whatever the level.
+ *
+ * @author Antonin
+ */
+public class TrendOverlay extends ColorOverlay {
+    private final ResourceManager rm;
+    private volatile int periodStart;
+
+    /**
+     * Builds the quadrilaterals of every cell of a level of the collection.
+     *
+     * @param rm the collection of anomalies to display.
+     * @param level the level of the collection's GridPyramid to display.
+     * @param colorMap the map coloring the trends.
+     */
+    public TrendOverlay(ResourceManager rm, GridPyramid.Level level, ColorMap colorMap) {
+        super(rm, level, colorMap);
+        this.rm = rm;
+        this.periodStart = rm.getMinYear();
+    }
+
+    /**
+     * Sets the first year of the trends' period. The cached frames are
+     * discarded if it changes.
+     *
+     * @param year the first year of the period.
+     */
+    public void setPeriodStart(int year) {
+        if (year != periodStart) {
+            periodStart = year;
+            clearFrames();
+        }
+    }
+
+    public int getPeriodStart() {
+        return periodStart;
+    }
+
+    @Override
+    public byte[] frameOf(int year, float fraction) {
+        // the trends don't change between two years
+        return frameOf(year);
+    }
+
+    @Override
+    protected float[] copyLevelSlice(int year, float fraction, float[] dst) {
+        if (rm.getAnomalyStore().yearIndexOf(year) < 0) {
+            return null;
+        }
+
+        int start = periodStart;
+        TrendMap trendMap = rm.getTrendMap(Math.min(start, year), Math.max(start, year));
+        return getLevel().aggregate(trendMap.getTrends(), dst, getScratch());
+    }
+}
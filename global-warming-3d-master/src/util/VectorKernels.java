@@ -0,0 +1,155 @@
+package util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorKernels class implements SliceKernels with the JDK Vector API, the
+ * lanes' branches being replaced by masks. The values left after the last
+ * full vector are computed by the scalar loops.
+ *
+ * Only loaded by SliceKernels when the jdk.incubator.vector module is.
+ *
+ * @author Antonin
+ */
+final class VectorKernels extends ScalarKernels {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    // same shape as SPECIES : a float vector widens into two double vectors
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = VectorSpecies.of(double.class, SPECIES.vectorShape());
+
+    @Override
+    public void normalise(float[] src, float anoMin, float anoMax, float[] dst, int length) {
+        final int bound = SPECIES.loopBound(length);
+        final FloatVector zero = FloatVector.zero(SPECIES);
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, src, i);
+            // NaN lanes are neither positive nor negative : they stay 0
+            zero.blend(v.div(anoMax), v.compare(VectorOperators.GT, 0.f))
+                .blend(v.div(-anoMin), v.compare(VectorOperators.LT, 0.f))
+                .intoArray(dst, i);
+        }
+        normalise(src, anoMin, anoMax, dst, i, length);
+    }
+
+    @Override
+    public void truncate(float[] src, float steps, float[] dst, int length) {
+        final int bound = SPECIES.loopBound(length);
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            // F2I truncates toward 0 and gives 0 for NaN, as the cast
+            FloatVector.fromArray(SPECIES, src, i).mul(steps)
+                       .convert(VectorOperators.F2I, 0)
+                       .convert(VectorOperators.I2F, 0)
+                       .reinterpretAsFloats().div(steps)
+                       .intoArray(dst, i);
+        }
+        truncate(src, steps, dst, i, length);
+    }
+
+    @Override
+    public void paletteIndexes(float[] src, byte[] lut, byte missingIndex, byte[] dst, int length) {
+        final int bound = SPECIES.loopBound(length);
+        final float half = lut.length / 2;
+        final FloatVector missing = FloatVector.broadcast(SPECIES, -1.f);
+        final int[] entries = new int[SPECIES.length()];
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector u = FloatVector.fromArray(SPECIES, src, i);
+            FloatVector entry = u.mul(half).add(half);
+
+            // a negative anomaly stays in the first half of the table
+            FloatVector negative = entry.min(half - 1).max(0.f);
+            entry.min(lut.length - 1)
+                 .blend(negative, u.compare(VectorOperators.LT, 0.f))
+                 .blend(missing, u.compare(VectorOperators.GT, 0.f).or(u.compare(VectorOperators.LT, 0.f)).not())
+                 .convert(VectorOperators.F2I, 0)
+                 .reinterpretAsInts()
+                 .intoArray(entries, 0);
+
+            for (int lane = 0; lane < entries.length; lane++) {
+                dst[i + lane] = entries[lane] < 0 ? missingIndex : lut[entries[lane]];
+            }
+        }
+        paletteIndexes(src, lut, missingIndex, dst, i, length);
+    }
+
+    @Override
+    public float min(float[] src, int from, int to) {
+        final int bound = from + SPECIES.loopBound(to - from);
+        final FloatVector infinity = FloatVector.broadcast(SPECIES, Float.POSITIVE_INFINITY);
+        FloatVector min = infinity;
+
+        int i = from;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, src, i);
+            min = min.min(v.blend(infinity, v.test(VectorOperators.IS_NAN)));
+        }
+        return Math.min(min.reduceLanes(VectorOperators.MIN), super.min(src, i, to));
+    }
+
+    @Override
+    public float max(float[] src, int from, int to) {
+        final int bound = from + SPECIES.loopBound(to - from);
+        final FloatVector infinity = FloatVector.broadcast(SPECIES, Float.NEGATIVE_INFINITY);
+        FloatVector max = infinity;
+
+        int i = from;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, src, i);
+            max = max.max(v.blend(infinity, v.test(VectorOperators.IS_NAN)));
+        }
+        return Math.max(max.reduceLanes(VectorOperators.MAX), super.max(src, i, to));
+    }
+
+    @Override
+    public double sum(float[] src, int from, int to) {
+        final int bound = from + SPECIES.loopBound(to - from);
+        DoubleVector sum = DoubleVector.zero(DOUBLE_SPECIES);
+
+        int i = from;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, src, i);
+            v = v.blend(0.f, v.test(VectorOperators.IS_NAN));
+            // accumulated in double, as the scalar loop
+            sum = sum.add(v.convertShape(VectorOperators.F2D, DOUBLE_SPECIES, 0))
+                     .add(v.convertShape(VectorOperators.F2D, DOUBLE_SPECIES, 1));
+        }
+        return sum.reduceLanes(VectorOperators.ADD) + super.sum(src, i, to);
+    }
+
+    @Override
+    public int count(float[] src, int from, int to) {
+        final int bound = from + SPECIES.loopBound(to - from);
+
+        int count = 0;
+        int i = from;
+        for (; i < bound; i += SPECIES.length()) {
+            count += FloatVector.fromArray(SPECIES, src, i).test(VectorOperators.IS_NAN).not().trueCount();
+        }
+        return count + super.count(src, i, to);
+    }
+
+    @Override
+    public void interpolate(float[] from, float[] to, float fraction, float[] dst, int length) {
+        final int bound = SPECIES.loopBound(length);
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector a = FloatVector.fromArray(SPECIES, from, i);
+            FloatVector b = FloatVector.fromArray(SPECIES, to, i);
+            VectorMask<Float> unknown = a.test(VectorOperators.IS_NAN).or(b.test(VectorOperators.IS_NAN));
+
+            a.add(b.sub(a).mul(fraction))
+             .blend(fraction < 0.5f ? a : b, unknown)
+             .intoArray(dst, i);
+        }
+        interpolate(from, to, fraction, dst, i, length);
+    }
+}
@@ -1,44 +1,142 @@
 package view;
 
+import java.util.ArrayList;
+import java.util.List;
+import javafx.collections.ObservableList;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
+import model.AnomalyStore;
 import model.ResourceManager;
+import util.SeriesDecimator;
 
 /**
  * The AnomalyChart class represents a chart dedicated to temperatures'
  * evolution display.
  *
+ * A series is reduced to about one point per pixel of the chart (see
+ * SeriesDecimator), whatever its length, and its points are updated in
+ * place. Several series can be displayed together, e.g. to compare zones.
+ *
  * @author Antonin
  */
-public class AnomalyChart extends LineChart {
+public class AnomalyChart extends LineChart<Number, Number> {
+    // the decimation keeps at most one point per this width, in pixels
+    private static final double PIXELS_PER_POINT = 1.0;
+
+    private final ResourceManager rm;
+
+    // full series of the displayed ones, re-decimated on resize
+    private final List<float[]> anomaliesSeries = new ArrayList<>();
+    private int pointCount;
 
     public AnomalyChart(ResourceManager rm) {
         super(new NumberAxis("Années", rm.getMinYear(), rm.getMaxYear(), 25),
-              new NumberAxis("Anomalies", (int)rm.getMinTempAnomaly()-1, (int)rm.getMaxTempAnomaly()+1, 2));        
-        
+              new NumberAxis("Anomalies", (int)rm.getMinTempAnomaly()-1, (int)rm.getMaxTempAnomaly()+1, 2));
+        this.rm = rm;
+
         setCreateSymbols(false);
         setLegendVisible(false);
         setPrefHeight(270.0);
         setMaxWidth(250.0);
-//        setAnimated(false);
+        // points are moved in place, not animated
+        setAnimated(false);
+
+        getXAxis().widthProperty().addListener(obs -> {
+            if (maxPointCount() != pointCount) {
+                refresh();
+            }
+        });
     }
 
     /**
-     * Clears the old line and displays a new set of data.
-     * 
-     * @param anomalies the array of float used to populate the chart.
+     * Clears the old lines and displays a new set of data.
+     *
+     * @param name the name of the series.
+     * @param anomalies the array of float used to populate the chart, one
+     * value per year of the collection.
      */
-    public void updateData(float[] anomalies) {
-        LineChart.Series<Number, Number> serie = new LineChart.Series<>();
-        
-        for (int i = 0; i < anomalies.length; i++) {
-            serie.getData().add(new LineChart.Data<>(i+1880, anomalies[i]));
+    public void updateData(String name, float[] anomalies) {
+        anomaliesSeries.clear();
+        anomaliesSeries.add(anomalies);
+
+        // the points of the remaining line are reused
+        if (getData().size() > 1) {
+            getData().remove(1, getData().size());
+        }
+        refresh();
+
+        getData().get(0).setName(name);
+    }
+
+    /**
+     * Displays a set of data over the displayed ones.
+     *
+     * @param name the name of the series.
+     * @param anomalies the array of float used to populate the chart, one
+     * value per year of the collection.
+     */
+    public void addData(String name, float[] anomalies) {
+        anomaliesSeries.add(anomalies);
+        refresh();
+
+        getData().get(getData().size() - 1).setName(name);
+    }
+
+    // the budget of points of a series : the plot's width
+    private int maxPointCount() {
+        double width = getXAxis().getWidth() > 0 ? getXAxis().getWidth() : getMaxWidth();
+        return Math.max(3, (int) (width / PIXELS_PER_POINT));
+    }
+
+    private void refresh() {
+        // years may have been appended
+        ((NumberAxis) getXAxis()).setUpperBound(rm.getMaxYear());
+        pointCount = maxPointCount();
+
+        for (int s = 0; s < anomaliesSeries.size(); s++) {
+            if (s == getData().size()) {
+                getData().add(new LineChart.Series<>());
+            }
+            fill(getData().get(s).getData(), anomaliesSeries.get(s));
+        }
+        setLegendVisible(anomaliesSeries.size() > 1);
+    }
+
+    /**
+     * Replaces the points of a series by the decimated anomalies, the
+     * existing Data objects being reused.
+     */
+    private void fill(ObservableList<LineChart.Data<Number, Number>> points, float[] anomalies) {
+        AnomalyStore store = rm.getAnomalyStore();
+        int length = Math.min(anomalies.length, store.getYearCount());
+
+        // the "NA" years are left out, the line joining the known ones
+        double[] years = new double[length];
+        double[] values = new double[length];
+        int known = 0;
+        for (int i = 0; i < length; i++) {
+            if (!Float.isNaN(anomalies[i])) {
+                years[known] = store.getYear(i);
+                values[known] = anomalies[i];
+                known++;
+            }
+        }
+
+        int[] kept = SeriesDecimator.largestTriangleThreeBuckets(years, values, known, pointCount);
+
+        List<LineChart.Data<Number, Number>> added = new ArrayList<>();
+        for (int k = 0; k < kept.length; k++) {
+            if (k < points.size()) {
+                points.get(k).setXValue(years[kept[k]]);
+                points.get(k).setYValue(values[kept[k]]);
+            } else {
+                added.add(new LineChart.Data<>(years[kept[k]], values[kept[k]]));
+            }
+        }
+
+        if (points.size() > kept.length) {
+            points.remove(kept.length, points.size());
         }
-        
-        getData().clear();
-        getData().add(serie);
-                    
-        serie.getNode().lookup(".chart-series-line").setStyle("-fx-stroke: #DD3300;");
+        points.addAll(added);
     }
-    
 }
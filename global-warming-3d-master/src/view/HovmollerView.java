@@ -0,0 +1,254 @@
+package view;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.paint.Color;
+import model.AnomalyStore;
+import model.HovmollerMeans;
+import model.ResourceManager;
+import util.ColorMap;
+import util.PaletteIndexer;
+
+/**
+ * HovmollerView class represents the mean anomalies of each latitude (or
+ * each longitude) for each year : a pixel per year and per grid row (or
+ * column), the north (or the east) at the top.
+ *
+ * The pixels are written by columns of years straight into an image, with
+ * the color map of the globe. The means are kept by the ResourceManager : a
+ * new color map recolors the image, appended years only write their
+ * columns, and the zoom and the pan only move the viewport of the image.
+ *
+ * @author Antonin
+ */
+public class HovmollerView extends ImageView {
+    // columns left free at the end of the image, for the appended years
+    private static final int SPARE_YEARS = 16;
+    private static final double ZOOM_FACTOR = 1.25;
+    // smallest part of the image displayed, in pixels
+    private static final double MIN_VIEWPORT = 4.0;
+
+    private final ResourceManager rm;
+    private boolean byLatitude = true;
+
+    private ColorMap colorMap;
+    private int[] argbPalette;
+    private float anoMin = Float.NaN;
+    private float anoMax = Float.NaN;
+
+    private WritableImage image;
+    private int drawnYears;
+    // the drawn years must be colored again
+    private boolean stale = true;
+
+    // displayed part of the image, in pixels
+    private double viewX, viewY, viewWidth, viewHeight;
+    private double dragX, dragY;
+
+    public HovmollerView(ResourceManager rm, ColorMap colorMap, double width, double height) {
+        this.rm = rm;
+
+        setFitWidth(width);
+        setFitHeight(height);
+        setPreserveRatio(false);
+        // one sharp rectangle per year and per row
+        setSmooth(false);
+
+        initListeners();
+        setColorMap(colorMap);
+    }
+
+    private void initListeners() {
+        // The events aren't given to the globe below
+        setOnScroll(event -> {
+            double factor = event.getDeltaY() > 0 ? 1 / ZOOM_FACTOR : ZOOM_FACTOR;
+            zoom(factor, event.getX() / getFitWidth(), event.getY() / getFitHeight());
+            event.consume();
+        });
+
+        setOnMousePressed(event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+            event.consume();
+        });
+
+        setOnMouseDragged(event -> {
+            pan((dragX - event.getX()) * viewWidth / getFitWidth(),
+                (dragY - event.getY()) * viewHeight / getFitHeight());
+            dragX = event.getX();
+            dragY = event.getY();
+            event.consume();
+        });
+
+        setOnMouseReleased(event -> event.consume());
+
+        // Double-click switches between the latitudes and the longitudes
+        setOnMouseClicked(event -> {
+            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+                setByLatitude(!byLatitude);
+            }
+            event.consume();
+        });
+    }
+
+    public boolean isByLatitude() { return byLatitude; }
+
+    /**
+     * Displays the means of the latitudes, or those of the longitudes.
+     *
+     * @param byLatitude true for the latitude/year diagram.
+     */
+    public void setByLatitude(boolean byLatitude) {
+        if (this.byLatitude != byLatitude) {
+            this.byLatitude = byLatitude;
+            image = null;
+            refresh();
+        }
+    }
+
+    /**
+     * Recolors the diagram, without computing the means again.
+     *
+     * @param colorMap the map used to color the globe.
+     */
+    public void setColorMap(ColorMap colorMap) {
+        this.colorMap = colorMap;
+
+        argbPalette = new int[colorMap.getPaletteSize()];
+        for (int i = 0; i < argbPalette.length; i++) {
+            argbPalette[i] = argb(colorMap.getColor(i), i == ColorMap.NO_ANOMALY_INDEX);
+        }
+
+        stale = true;
+        refresh();
+    }
+
+    // the levels are opaque, as on the legend
+    private static int argb(Color color, boolean transparent) {
+        int alpha = transparent ? (int) Math.round(color.getOpacity() * 255) : 255;
+        return alpha << 24
+             | (int) Math.round(color.getRed() * 255) << 16
+             | (int) Math.round(color.getGreen() * 255) << 8
+             | (int) Math.round(color.getBlue() * 255);
+    }
+
+    /**
+     * Draws the years appended to the collection since the last call, or
+     * the whole diagram if the min/max anomalies have changed.
+     */
+    public void refresh() {
+        HovmollerMeans means = rm.getHovmollerMeans();
+        final int yearCount = means.getYearCount();
+        final int height = byLatitude ? means.getGridSpec().getLatCount() : means.getGridSpec().getLonCount();
+        // The displayed period goes on to the appended years
+        final boolean following = viewX + viewWidth >= drawnYears;
+
+        if (Float.compare(anoMin, rm.getMinTempAnomaly()) != 0 || Float.compare(anoMax, rm.getMaxTempAnomaly()) != 0) {
+            anoMin = rm.getMinTempAnomaly();
+            anoMax = rm.getMaxTempAnomaly();
+            stale = true;
+        }
+
+        // The whole collection is displayed in a new image
+        boolean newImage = image == null || image.getWidth() < yearCount || image.getHeight() != Math.max(1, height);
+        if (newImage) {
+            image = new WritableImage(Math.max(1, yearCount + SPARE_YEARS), Math.max(1, height));
+            setImage(image);
+            stale = true;
+        }
+
+        final int from = stale ? 0 : drawnYears;
+        if (from < yearCount && height > 0) {
+            writeYears(means, from, yearCount, height);
+        }
+        drawnYears = yearCount;
+        stale = false;
+
+        if (newImage) {
+            moveViewport(0, 0, yearCount, height);
+        } else if (following) {
+            moveViewport(viewX, viewY, yearCount - viewX, viewHeight);
+        }
+    }
+
+    /**
+     * Writes the columns of a range of years, in one call.
+     */
+    private void writeYears(HovmollerMeans means, int from, int to, int height) {
+        final int width = to - from;
+        final int[] pixels = new int[width * height];
+        final float[] values = new float[height];
+        final byte[] indexes = new byte[height];
+        final PaletteIndexer indexer = colorMap.indexer(anoMin, anoMax);
+
+        for (int y = from; y < to; y++) {
+            if (byLatitude) {
+                means.copyRowMeans(y, values);
+            } else {
+                means.copyColumnMeans(y, values);
+            }
+            indexer.indexAll(values, indexes, height);
+
+            for (int k = 0; k < height; k++) {
+                pixels[(height - 1 - k) * width + y - from] = argbPalette[indexes[k] & 0xFF];
+            }
+        }
+
+        image.getPixelWriter().setPixels(from, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+    }
+
+    /**
+     * Displays a period of the collection, the whole latitudes or
+     * longitudes.
+     *
+     * @param yearFrom the first year displayed.
+     * @param yearTo the last year displayed.
+     */
+    public void setYearRange(int yearFrom, int yearTo) {
+        AnomalyStore store = rm.getAnomalyStore();
+        int from = 0;
+        while (from < drawnYears && store.getYear(from) < yearFrom) {
+            from++;
+        }
+        int to = from;
+        while (to < drawnYears && store.getYear(to) <= yearTo) {
+            to++;
+        }
+        if (to > from) {
+            moveViewport(from, 0, to - from, image.getHeight());
+        }
+    }
+
+    /**
+     * Zooms on a point of the displayed part.
+     *
+     * @param factor the ratio of the new size to the old one.
+     * @param u the horizontal position of the point, from 0 to 1.
+     * @param v the vertical position of the point, from 0 to 1.
+     */
+    private void zoom(double factor, double u, double v) {
+        double width = viewWidth * factor;
+        double height = viewHeight * factor;
+        moveViewport(viewX + (viewWidth - width) * u, viewY + (viewHeight - height) * v, width, height);
+    }
+
+    private void pan(double dx, double dy) {
+        moveViewport(viewX + dx, viewY + dy, viewWidth, viewHeight);
+    }
+
+    // the viewport stays within the drawn years
+    private void moveViewport(double x, double y, double width, double height) {
+        final double maxWidth = Math.max(1, drawnYears);
+        final double maxHeight = image.getHeight();
+
+        viewWidth = Math.max(Math.min(MIN_VIEWPORT, maxWidth), Math.min(width, maxWidth));
+        viewHeight = Math.max(Math.min(MIN_VIEWPORT, maxHeight), Math.min(height, maxHeight));
+        viewX = Math.max(0, Math.min(x, maxWidth - viewWidth));
+        viewY = Math.max(0, Math.min(y, maxHeight - viewHeight));
+
+        setViewport(new Rectangle2D(viewX, viewY, viewWidth, viewHeight));
+    }
+}
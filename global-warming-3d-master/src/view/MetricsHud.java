@@ -0,0 +1,52 @@
+package view;
+
+import javafx.geometry.Insets;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import model.ModelMetrics;
+import util.RenderMetrics;
+
+/**
+ * MetricsHud class displays the rendering and data metrics above the globe,
+ * hidden by default.
+ *
+ * @author Antonin
+ */
+public class MetricsHud extends Label {
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    public MetricsHud() {
+        setFont(Font.font("Monospaced", 11));
+        setTextFill(Color.WHITE);
+        setPadding(new Insets(4));
+        setBackground(new Background(new BackgroundFill(Color.rgb(0, 0, 0, 0.55), new CornerRadii(3), Insets.EMPTY)));
+        // the globe below stays clickable
+        setMouseTransparent(true);
+        setVisible(false);
+    }
+
+    /**
+     * Displays the current values of the metrics.
+     */
+    public void refresh() {
+        RenderMetrics render = RenderMetrics.get();
+        ModelMetrics model = ModelMetrics.get();
+
+        setText(String.format("Calcul   %6.2f ms (max %.2f)%n"
+                            + "Écriture %6.2f ms (p99 %.2f)%n"
+                            + "Cellules %6d (moy. %.0f)%n"
+                            + "Images   %6.2f ms (p99 %.2f)%n"
+                            + "Nœuds    %6d (anomalies %d)%n"
+                            + "Données  %6.1f Mo (%.0f ms)",
+                render.getComputeMeanMillis(), render.getComputeMaxMillis(),
+                render.getApplyMeanMillis(), render.getApplyP99Millis(),
+                render.getCellsTouchedLast(), render.getCellsTouchedMean(),
+                render.getFrameIntervalMeanMillis(), render.getFrameIntervalP99Millis(),
+                render.getRootNodeCount(), render.getAnomalyGroupChildren(),
+                model.getHeapBytes() / BYTES_PER_MEGABYTE, model.getLastLoadMillis()));
+    }
+}
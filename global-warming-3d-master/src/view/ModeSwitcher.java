@@ -7,7 +7,7 @@ import javafx.scene.control.ToggleGroup;
 import javafx.scene.layout.HBox;
 
 /**
- * ModeSwitcher is the view of a switch composed of 2 toggle buttons.
+ * ModeSwitcher is the view of a switch composed of 3 toggle buttons.
  * It is used to select how to display anomalies.
  *
  * @author Antonin
@@ -16,6 +16,7 @@ public final class ModeSwitcher extends HBox {
     private ToggleGroup tgGroup;
     private ToggleButton tbColors = new ToggleButton("Couleurs");
     private ToggleButton tbBars = new ToggleButton("Barres");;
+    private ToggleButton tbTrends = new ToggleButton("Tendance");
 
     /**
      * Initializes buttons' aspect and properties.
@@ -25,7 +26,7 @@ public final class ModeSwitcher extends HBox {
     public ModeSwitcher(double btnWidth) {
         super();
         // Class is final because of "Overridable method call in constructor" here :
-        getChildren().addAll(tbBars, tbColors);
+        getChildren().addAll(tbBars, tbColors, tbTrends);
                 
         tgGroup = new ToggleGroup();
         
@@ -33,11 +34,15 @@ public final class ModeSwitcher extends HBox {
         tbBars.setStyle("-fx-background-radius: 10 0 0 10");
         
         tbColors.setPrefWidth(btnWidth);
-        tbColors.setStyle("-fx-background-radius: 0 10 10 0");
+        tbColors.setStyle("-fx-background-radius: 0");
+        
+        tbTrends.setPrefWidth(btnWidth);
+        tbTrends.setStyle("-fx-background-radius: 0 10 10 0");
         
         // links the toggle buttons to the toggle group
         tbBars.setToggleGroup(tgGroup);
         tbColors.setToggleGroup(tgGroup);
+        tbTrends.setToggleGroup(tgGroup);
         
         // Color mode is selected by default
         tbColors.setSelected(true);
@@ -59,12 +64,17 @@ public final class ModeSwitcher extends HBox {
     public boolean isBarModeSelected() {
         return tgGroup.getSelectedToggle() == tbBars;
     }
+
+    public boolean isTrendModeSelected() {
+        return tgGroup.getSelectedToggle() == tbTrends;
+    }
     
     /**
-     * Inverts toggles aspect : the selected one should'nt be accessible.
+     * Updates toggles aspect : the selected one should'nt be accessible.
      */
     public void toggleDisabledButton() {
-        tbBars.setDisable(!tbBars.isDisable());
-        tbColors.setDisable(!tbBars.isDisable());
+        tbBars.setDisable(tbBars.isSelected());
+        tbColors.setDisable(tbColors.isSelected());
+        tbTrends.setDisable(tbTrends.isSelected());
     }
 }
@@ -1,10 +1,13 @@
 package view;
 
+import java.util.ArrayList;
+import java.util.List;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.LinearGradient;
 import javafx.scene.paint.Stop;
 import javafx.scene.shape.Rectangle;
+import util.ColorMap;
 
 /**
  * Scale class represents a color gradient corresponding to the temperature
@@ -20,6 +23,11 @@ public final class Scale extends Rectangle {
         setGradient(colors);
     }
 
+    public Scale(int width, int height, ColorMap colorMap) {
+        super(width, height);
+        setColorMap(colorMap);
+    }
+
     /**
      * Change the aspect of the scale.
      * 
@@ -38,5 +46,37 @@ public final class Scale extends Rectangle {
         LinearGradient lg = new LinearGradient(0, 0, 0, 1, true, CycleMethod.NO_CYCLE, stops);
         this.setFill(lg);
     }
-    
+
+    /**
+     * Displays the levels of a ColorMap, read from its lookup table : the
+     * highest anomalies at the top, the lowest at the bottom. Colors are
+     * displayed opaque.
+     *
+     * @param colorMap the map used to color the globe.
+     */
+    public void setColorMap(ColorMap colorMap) {
+        final int lutSize = colorMap.getLutSize();
+        List<Stop> stops = new ArrayList<>();
+
+        int previous = colorMap.getLutIndex(lutSize - 1);
+        stops.add(new Stop(0, opaque(colorMap.getColor(previous))));
+
+        for (int entry = lutSize - 2; entry >= 0; entry--) {
+            int index = colorMap.getLutIndex(entry);
+            if (index != previous) {
+                // hard edge between two levels
+                double offset = (double) (lutSize - 1 - entry) / lutSize;
+                stops.add(new Stop(offset, opaque(colorMap.getColor(previous))));
+                stops.add(new Stop(offset, opaque(colorMap.getColor(index))));
+                previous = index;
+            }
+        }
+        stops.add(new Stop(1, opaque(colorMap.getColor(previous))));
+
+        this.setFill(new LinearGradient(0, 0, 0, 1, true, CycleMethod.NO_CYCLE, stops));
+    }
+
+    private static Color opaque(Color color) {
+        return new Color(color.getRed(), color.getGreen(), color.getBlue(), 1.0);
+    }
 }
@@ -0,0 +1,100 @@
+package view;
+
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import model.AnomalyStatistics;
+import model.ResourceManager;
+import util.ColorMap;
+import util.PaletteIndexer;
+
+/**
+ * StatisticsPanel class displays the summary statistics of the collection :
+ * the global mean and the mean of the selected zone's latitude band over
+ * the years, and the min/max and coverage of the current year, the
+ * coverage being colored from poor to complete.
+ *
+ * @author Antonin
+ */
+public class StatisticsPanel extends VBox {
+    // coverage of a year, from 0 (no known cell) to 1 (the whole globe)
+    private static final ColorMap COVERAGE_MAP = ColorMap.sequential(5, Color.RED, Color.ORANGE, Color.GREEN);
+    private static final PaletteIndexer COVERAGE_INDEXER = COVERAGE_MAP.indexer(0.f, 1.f);
+
+    private final ResourceManager rm;
+    private final LineChart<Number, Number> chart;
+    private final Label yearLabel = new Label();
+    private final Label coverageLabel = new Label();
+
+    public StatisticsPanel(ResourceManager rm) {
+        super(5.0);
+        this.rm = rm;
+
+        NumberAxis meanAxis = new NumberAxis();
+        meanAxis.setLabel("Moyennes");
+        chart = new LineChart<>(new NumberAxis("Années", rm.getMinYear(), rm.getMaxYear(), 25), meanAxis);
+        chart.setCreateSymbols(false);
+        chart.setPrefHeight(220.0);
+        chart.setMaxWidth(250.0);
+        chart.setAnimated(false);
+
+        getChildren().addAll(chart, yearLabel, coverageLabel);
+    }
+
+    /**
+     * Displays the global mean and the mean of the latitude band containing
+     * a zone.
+     *
+     * @param lat the latitude of the selected zone.
+     */
+    public void updateData(double lat) {
+        AnomalyStatistics statistics = rm.getStatistics();
+        int zone = AnomalyStatistics.zoneOf(lat);
+
+        // years may have been appended
+        ((NumberAxis) chart.getXAxis()).setUpperBound(rm.getMaxYear());
+
+        chart.getData().clear();
+        chart.getData().add(createSerie("Globe", statistics.getGlobalMeans()));
+        chart.getData().add(createSerie(AnomalyStatistics.getZoneName(zone), statistics.getZonalMeans(zone)));
+    }
+
+    private XYChart.Series<Number, Number> createSerie(String name, float[] means) {
+        XYChart.Series<Number, Number> serie = new XYChart.Series<>();
+        serie.setName(name);
+
+        for (int i = 0; i < means.length; i++) {
+            if (!Float.isNaN(means[i])) {
+                serie.getData().add(new XYChart.Data<>(rm.getAnomalyStore().getYear(i), means[i]));
+            }
+        }
+        return serie;
+    }
+
+    /**
+     * Displays the min/max and the coverage of a year.
+     *
+     * @param year the displayed year.
+     */
+    public void updateYear(int year) {
+        AnomalyStatistics statistics = rm.getStatistics();
+        int yearIndex = rm.getAnomalyStore().yearIndexOf(year);
+
+        if (statistics == null || yearIndex < 0 || yearIndex >= statistics.getYearCount()) {
+            yearLabel.setText("");
+            coverageLabel.setText("");
+            return;
+        }
+
+        yearLabel.setText(String.format("%d : moyenne %+.2f °C, min %.2f, max %.2f",
+                year, statistics.getGlobalMean(yearIndex),
+                statistics.getMinimum(yearIndex), statistics.getMaximum(yearIndex)));
+
+        float coverage = statistics.getCoverage(yearIndex);
+        coverageLabel.setText(String.format("couverture %.0f %%", coverage * 100));
+        coverageLabel.setTextFill(COVERAGE_MAP.getColor(COVERAGE_INDEXER.indexOf(coverage)));
+    }
+}
@@ -0,0 +1,129 @@
+package model;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class AnomalyFileTest {
+
+    private static final String CSV = "\"lat\",\"lon\",\"1990\",\"1991\",\"1992\"\n"
+            + "-4,-176,0.25,NA,-1.5\n"
+            + "-4,-172,NA,NA,NA\n"
+            + "0,-176,3.75,2,NA\n"
+            + "0,-172,-0.5,0,1\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path convert() throws IOException {
+        Path csv = folder.newFile("anomalies.csv").toPath();
+        Path bin = folder.getRoot().toPath().resolve("anomalies.bin");
+        Files.write(csv, CSV.getBytes(StandardCharsets.UTF_8));
+
+        AnomalyFileConverter.convert(csv, bin);
+        return bin;
+    }
+
+    /**
+     * Vérifier qu'un fichier .csv converti en fichier binaire se relit à
+     * l'identique, projeté en mémoire ou lu comme un flux.
+     */
+    @Test
+    public void RoundTripTest() throws IOException, URISyntaxException {
+        Path bin = convert();
+
+        ResourceManager expected = new ResourceManager();
+        expected.readTemperatureData(new FileInputStream(folder.getRoot().toPath().resolve("anomalies.csv").toFile()),
+                                     "anomalies.csv");
+        assertFalse(expected.getAnomalyStore().hasData(expected.getAnomalyStore().cellIndexOf(-4, -172)));
+
+        // readAnomalyFile lit une ressource : le fichier est copié à côté de cette classe
+        Path classDirectory = Paths.get(AnomalyFileTest.class.getResource("AnomalyFileTest.class").toURI()).getParent();
+        Path resource = classDirectory.resolve("anomalies-test.bin");
+        Files.copy(bin, resource);
+        try {
+            ResourceManager mapped = new ResourceManager();
+            mapped.readAnomalyFile("/model/anomalies-test.bin");
+            ResourceManagerTest.assertSameLoad(expected, mapped);
+        } finally {
+            Files.delete(resource);
+        }
+
+        try (InputStream is = Files.newInputStream(bin)) {
+            AnomalyFile file = AnomalyFile.read(is);
+            assertEquals(expected.getMinTempAnomaly(), file.getMinAnomaly(), 0.f);
+            assertEquals(expected.getMaxTempAnomaly(), file.getMaxAnomaly(), 0.f);
+            assertArrayEquals(expected.getAnomalyStore().getNaMask(), file.getStore().getNaMask());
+            assertArrayEquals(expected.getAnomalyStore().copyYearSlice(0, new float[4]),
+                              file.getStore().copyYearSlice(0, new float[4]), 0.f);
+        }
+    }
+
+    /**
+     * Vérifier qu'un en-tête altéré ou tronqué est refusé.
+     */
+    @Test
+    public void CorruptedHeaderTest() throws IOException {
+        Path bin = convert();
+        byte[] bytes = Files.readAllBytes(bin);
+
+        byte[] wrongMagic = bytes.clone();
+        wrongMagic[0] ^= 0x7F;
+        Files.write(bin, wrongMagic, StandardOpenOption.TRUNCATE_EXISTING);
+        assertRejected(bin);
+
+        Files.write(bin, Arrays.copyOf(bytes, 20), StandardOpenOption.TRUNCATE_EXISTING);
+        assertRejected(bin);
+    }
+
+    /**
+     * Vérifier qu'un en-tête annonçant des données de plus de 2 Go est
+     * refusé par une IOException, sans débordement des tailles.
+     */
+    @Test
+    public void OversizedLayoutTest() throws IOException {
+        Path bin = convert();
+        byte[] bytes = Files.readAllBytes(bin);
+
+        // 30000 zones x 30000 années : 3,6 Go de données par disposition
+        final int count = 30000;
+        long dataOffset = (48 + 4L * count + 8L * count + 8L * ((count + 63) / 64) + 63) / 64 * 64;
+        ByteBuffer oversized = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        oversized.put(bytes, 0, 48);
+        oversized.putInt(8, count).putInt(12, count);
+        Files.write(bin, oversized.array(), StandardOpenOption.TRUNCATE_EXISTING);
+        assertRejected(bin);
+    }
+
+    private static void assertRejected(Path bin) throws IOException {
+        try {
+            AnomalyFile.map(bin);
+            fail("Fichier accepté : " + bin);
+        } catch (IOException e) {
+            // attendu
+        }
+        try (InputStream is = Files.newInputStream(bin)) {
+            AnomalyFile.read(is);
+            fail("Flux accepté : " + bin);
+        } catch (IOException e) {
+            // attendu
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class AnomalyStatisticsTest {
+
+    /**
+     * Vérifier les moyennes pondérées par cos(latitude), sans les "NA",
+     * et le calcul des seules années ajoutées.
+     */
+    @Test
+    public void MeanTest() {
+        AnomalyStore store = new AnomalyStore(new int[] {2000, 2001});
+        store.addCell(0, 0, new float[] {1.f, Float.NaN});
+        store.addCell(60, 0, new float[] {4.f, 2.f});
+        store.addCell(-60, 0, new float[] {Float.NaN, Float.NaN});
+        store.complete();
+
+        AnomalyStatistics statistics = AnomalyStatistics.compute(store);
+
+        // cos(60°) = 0.5
+        assertEquals((1.f + 4.f * 0.5f) / 1.5f, statistics.getGlobalMean(0), 1e-5f);
+        assertEquals(2.f, statistics.getGlobalMean(1), 0.f);
+        assertEquals(1.f, statistics.getMinimum(0), 0.f);
+        assertEquals(4.f, statistics.getMaximum(0), 0.f);
+        assertEquals(1.5f / 2.f, statistics.getCoverage(0), 1e-5f);
+        assertEquals(4.f, statistics.getZonalMeans(AnomalyStatistics.zoneOf(60))[0], 0.f);
+        assertTrue(Float.isNaN(statistics.getZonalMeans(AnomalyStatistics.zoneOf(-60))[0]));
+
+        AnomalyStore.YearAppend append = store.appendYears(new int[] {2002});
+        append.set(0, append.getFirstIndex(), -1.f);
+        append.publish();
+        statistics.update();
+
+        assertEquals(3, statistics.getYearCount());
+        assertEquals(-1.f, statistics.getGlobalMean(2), 0.f);
+        assertEquals(-1.f, statistics.getMaximum(2), 0.f);
+    }
+
+    /**
+     * Vérifier que les bandes de latitude sont nommées dans le bon hémisphère.
+     */
+    @Test
+    public void ZoneNameTest() {
+        assertEquals("Bande 30° Nord - 60° Nord", AnomalyStatistics.getZoneName(AnomalyStatistics.zoneOf(45)));
+        assertEquals("Bande 60° Sud - 30° Sud", AnomalyStatistics.getZoneName(AnomalyStatistics.zoneOf(-45)));
+    }
+}
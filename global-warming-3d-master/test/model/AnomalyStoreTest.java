@@ -0,0 +1,78 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class AnomalyStoreTest {
+    
+    AnomalyStore store;
+    
+    
+    @Before
+    public void setUp() {
+        store = new AnomalyStore(new int[] {2000, 2001, 2002});
+        
+        store.addCell(-88, -178, new float[] {0.1f, 0.2f, 0.3f});
+        store.addCell(-88, -174, new float[] {-1.f, Float.NaN, 1.f});
+        store.complete();
+    }
+    
+    /**
+     * Vérifier que les index de cellule et d'année sont retrouvés.
+     */
+    @Test
+    public void IndexTest() {
+        
+        assertEquals(1, store.cellIndexOf(-88, -174));
+        assertEquals(-1, store.cellIndexOf(0, 0));
+        assertEquals(2, store.yearIndexOf(2002));
+        assertEquals(-1, store.yearIndexOf(1999));
+    }
+    
+    /**
+     * Vérifier que les deux dispositions (cellule / année) sont cohérentes.
+     */
+    @Test
+    public void LayoutTest() {
+        
+        assertArrayEquals(new float[] {-1.f, Float.NaN, 1.f}, store.copyCellSeries(1, new float[3]), 0.f);
+        assertArrayEquals(new float[] {0.3f, 1.f}, store.copyYearSlice(2, new float[2]), 0.f);
+        assertTrue(Float.isNaN(store.get(1, 1)));
+    }
+    
+    /**
+     * Vérifier l'interpolation entre deux années, "NA" prenant l'année la plus proche.
+     */
+    @Test
+    public void InterpolationTest() {
+        
+        assertArrayEquals(new float[] {0.125f, -1.f}, store.interpolateYearSlice(0, 0.25f, new float[2], new float[2]), 1e-6f);
+        assertArrayEquals(new float[] {0.275f, 1.f}, store.interpolateYearSlice(1, 0.75f, new float[2], new float[2]), 1e-6f);
+        assertArrayEquals(new float[] {0.3f, 1.f}, store.interpolateYearSlice(2, 0.5f, new float[2], new float[2]), 0.f);
+    }
+    /**
+     * Vérifier que les années ajoutées ne sont visibles qu'une fois publiées.
+     */
+    @Test
+    public void AppendTest() {
+        AnomalyStore.YearAppend append = store.appendYears(new int[] {2003});
+        append.set(1, append.getFirstIndex(), 4.f);
+
+        assertEquals(3, store.getYearCount());
+        assertEquals(-1, store.yearIndexOf(2003));
+
+        append.publish();
+
+        assertEquals(4, store.getYearCount());
+        assertEquals(3, store.yearIndexOf(2003));
+        assertEquals(4.f, store.get(1, 3), 0.f);
+        assertTrue(Float.isNaN(store.get(0, 3)));
+        assertEquals(0.3f, store.get(0, 2), 0.f);
+        assertArrayEquals(new float[] {Float.NaN, 4.f}, store.copyYearSlice(3, new float[2]), 0.f);
+    }
+}
@@ -0,0 +1,49 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class AnomalyTokenizerTest {
+    
+    AnomalyTokenizer tokenizer = new AnomalyTokenizer();
+    
+    private boolean parse(String row, float[] values) {
+        byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
+        return tokenizer.parseRow(bytes, 0, bytes.length, values);
+    }
+    
+    /**
+     * Vérifier que les valeurs sont arrondies comme avec Float.parseFloat.
+     */
+    @Test
+    public void RowTest() {
+        float[] values = new float[3];
+        
+        assertTrue(parse("-88,-178,0.127083330492799,NA,-1.25e-1", values));
+        assertEquals(-88, tokenizer.getLat(), 0.f);
+        assertEquals(-178, tokenizer.getLon(), 0.f);
+        assertEquals((float)Math.round(Float.parseFloat("0.127083330492799") * 1000.f) / 1000.f, values[0], 0.f);
+        assertTrue(Float.isNaN(values[1]));
+        assertEquals(-0.125f, values[2], 0.f);
+    }
+    
+    /**
+     * Vérifier que les lignes mal formées sont signalées.
+     */
+    @Test
+    public void RowErrorTest() {
+        float[] values = new float[3];
+        
+        assertFalse(parse("-88,-178,0.1,0.2", values));
+        assertEquals(4, tokenizer.getColumnCount());
+        assertEquals(-1, tokenizer.getInvalidColumn());
+        
+        assertFalse(parse("-88,-178,0.1,abc,0.3", values));
+        assertEquals(3, tokenizer.getInvalidColumn());
+    }
+}
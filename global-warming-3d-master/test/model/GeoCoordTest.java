@@ -0,0 +1,30 @@
+package model;
+
+import javafx.geometry.Point3D;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class GeoCoordTest {
+
+    /**
+     * Vérifier qu'un point de l'hémisphère nord est lu au nord, et nommé
+     * comme tel.
+     */
+    @Test
+    public void NorthernPointTest() {
+        Point3D paris = GeoCoord.geoCoordTo3dCoord(48.75f, 2.25f, 1.01);
+
+        assertEquals(48.75, GeoCoord.pointLat(paris), 1e-3);
+        assertEquals(2.25, GeoCoord.pointLon(paris), 1e-3);
+
+        assertEquals("48.75° Nord", GeoCoord.latToString(48.75));
+        assertEquals("12° Sud", GeoCoord.latToString(-12.0));
+        assertEquals("0° Nord", GeoCoord.latToString(0.0));
+        assertEquals("30° Nord", new GeoCoord(30, 0).latToString());
+        assertEquals("2.25° Est", GeoCoord.lonToString(2.25));
+    }
+}
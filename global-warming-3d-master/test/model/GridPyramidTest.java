@@ -0,0 +1,117 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class GridPyramidTest {
+
+    /**
+     * Vérifier la moyenne pondérée par l'aire des cellules, sans les "NA".
+     */
+    @Test
+    public void AverageTest() {
+        AnomalyStore store = new AnomalyStore(new int[] {2000});
+        store.addCell(0, 0, new float[] {1.f});
+        store.addCell(0, 1, new float[] {Float.NaN});
+        store.addCell(60, 0, new float[] {3.f});
+        store.addCell(61, 1, new float[] {Float.NaN});
+        store.addCell(0, 2, new float[] {Float.NaN});
+        store.complete();
+
+        GridPyramid pyramid = new GridPyramid(store);
+        GridPyramid.Level level = pyramid.getLevel(1);
+        assertEquals(2, level.getFactor());
+
+        float[] values = level.copyYearSlice(0, 0, new float[level.getGridSpec().getCellCount()]);
+        GridSpec grid = level.getGridSpec();
+
+        // 0 et 1 (NA) : seule la cellule connue compte
+        assertEquals(1.f, values[grid.cellContaining(0.5, 0.5)], 1e-6f);
+        // que des "NA"
+        assertTrue(Float.isNaN(values[grid.cellContaining(0.5, 2.5)]));
+
+        // la cellule à 88° pèse deux fois plus que celle à 89°
+        GridPyramid single = new GridPyramid(storeOf(new float[] {88, 89}, new float[] {1.f, 4.f}));
+        float[] mean = single.getLevel(single.getLevelCount() - 1).copyYearSlice(0, 0, new float[1]);
+        assertEquals((1.f * 2 + 4.f) / 3, mean[0], 1e-2f);
+    }
+
+    /**
+     * Vérifier que deux threads calculant les tranches d'un même niveau en
+     * même temps, chacun avec ses tableaux de travail, trouvent les valeurs
+     * d'un calcul séquentiel.
+     */
+    @Test
+    public void ConcurrentSliceTest() throws Exception {
+        int[] years = new int[12];
+        for (int y = 0; y < years.length; y++) {
+            years[y] = 2000 + y;
+        }
+        AnomalyStore store = new AnomalyStore(years);
+        float[] anomalies = new float[years.length];
+        for (int lat = -89; lat < 90; lat += 2) {
+            for (int lon = -179; lon < 180; lon += 2) {
+                for (int y = 0; y < years.length; y++) {
+                    anomalies[y] = (lat + lon * y) % 7 == 0 ? Float.NaN : (lat * y - lon) / 100.f;
+                }
+                store.addCell(lat, lon, anomalies);
+            }
+        }
+        store.complete();
+
+        GridPyramid.Level level = new GridPyramid(store).getLevel(1);
+        int cellCount = level.getGridSpec().getCellCount();
+        float[][] expected = new float[years.length][];
+        for (int y = 0; y < years.length; y++) {
+            expected[y] = level.copyYearSlice(y, 0.5f, new float[cellCount]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                results.add(executor.submit(() -> {
+                    GridPyramid.Scratch scratch = level.newScratch();
+                    float[] slice = new float[cellCount];
+                    start.await();
+                    for (int i = 0; i < 200; i++) {
+                        int y = i % years.length;
+                        level.copyYearSlice(y, 0.5f, slice, scratch);
+                        if (!Arrays.equals(expected[y], slice)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static AnomalyStore storeOf(float[] lats, float[] anomalies) {
+        AnomalyStore store = new AnomalyStore(new int[] {2000});
+        for (int i = 0; i < lats.length; i++) {
+            store.addCell(lats[i], 0, new float[] {anomalies[i]});
+        }
+        store.complete();
+        return store;
+    }
+}
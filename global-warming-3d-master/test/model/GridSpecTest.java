@@ -0,0 +1,50 @@
+package model;
+
+import javafx.geometry.Point3D;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class GridSpecTest {
+
+    /**
+     * Vérifier que la grille est déduite des centres, quelle que soit sa résolution.
+     */
+    @Test
+    public void FromCentersTest() {
+        GridSpec grid = GridSpec.fromCenters(new float[] {-0.125f, 0.125f, 0.375f},
+                                             new float[] {179.875f, -179.875f, -179.625f});
+
+        assertEquals(0.25, grid.getLatStep(), 1e-6);
+        assertEquals(0.25, grid.getLonStep(), 1e-6);
+        assertEquals(3, grid.getLatCount());
+        assertEquals(1440, grid.getLonCount());
+
+        int cell = grid.cellAt(0.375, -179.625);
+        assertEquals(2, cell / grid.getLonCount());
+        assertEquals(1, cell % grid.getLonCount());
+        assertEquals(-1, grid.cellAt(0.3, -179.625));
+
+        // les longitudes font le tour du globe
+        assertEquals(grid.cellAt(0.125, -179.875), grid.cellContaining(0.125, 180.1));
+    }
+
+    /**
+     * Vérifier qu'un point pické retrouve sa cellule, jusqu'aux pôles.
+     */
+    @Test
+    public void PickingTest() {
+        GridSpec grid = new GridSpec(-88, -178, 4, 4, 45, 90);
+
+        for (int cell = 0; cell < grid.getCellCount(); cell += 7) {
+            assertEquals(cell, grid.cellContaining(grid.cellCenter(cell, 1.01)));
+        }
+
+        Point3D northPole = GeoCoord.geoCoordTo3dCoord(90, 0, 1);
+        assertEquals(90, GeoCoord.pointLat(northPole), 1e-3);
+        assertEquals(grid.getLatCount() - 1, grid.rowOf(GeoCoord.pointLat(northPole)));
+    }
+}
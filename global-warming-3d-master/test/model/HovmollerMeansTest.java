@@ -0,0 +1,50 @@
+package model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class HovmollerMeansTest {
+
+    /**
+     * Vérifier les moyennes par latitude et par longitude de chaque année,
+     * sans les "NA" et pondérées par la surface pour les longitudes, puis
+     * après l'ajout d'années.
+     */
+    @Test
+    public void MeansTest() {
+        AnomalyStore store = new AnomalyStore(new int[] {2000, 2001});
+        store.addCell(0, 0, new float[] {1.f, Float.NaN});
+        store.addCell(0, 90, new float[] {3.f, Float.NaN});
+        store.addCell(60, 0, new float[] {4.f, 2.f});
+        store.complete();
+
+        HovmollerMeans means = HovmollerMeans.compute(store);
+        GridSpec grid = means.getGridSpec();
+        int south = grid.rowOf(0);
+        int north = grid.rowOf(60);
+        int west = grid.columnOf(0);
+        int east = grid.columnOf(90);
+
+        assertEquals(2.f, means.getRowMean(south, 0), 1e-6f);
+        assertEquals(4.f, means.getRowMean(north, 0), 1e-6f);
+        assertTrue(Float.isNaN(means.getRowMean(south, 1)));
+
+        // cos(60°) = 0.5
+        assertEquals((1.f + 4.f * 0.5f) / 1.5f, means.getColumnMean(west, 0), 1e-5f);
+        assertEquals(2.f, means.getColumnMean(west, 1), 1e-6f);
+        assertEquals(3.f, means.copyColumnMeans(0, new float[grid.getLonCount()])[east], 1e-6f);
+
+        AnomalyStore.YearAppend append = store.appendYears(new int[] {2002});
+        append.set(store.cellIndexOf(0, 90), append.getFirstIndex(), -1.f);
+        append.publish();
+        means.update();
+
+        assertEquals(3, means.getYearCount());
+        assertEquals(-1.f, means.getRowMean(south, 2), 1e-6f);
+        assertEquals(2.f, means.getRowMean(south, 0), 1e-6f);
+    }
+}
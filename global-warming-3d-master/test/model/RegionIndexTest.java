@@ -0,0 +1,48 @@
+package model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class RegionIndexTest {
+
+    /**
+     * Vérifier la somme, le nombre d'anomalies connues et la moyenne d'une
+     * zone sur une période, sans les "NA", y compris de part et d'autre de
+     * l'antiméridien et après l'ajout d'années.
+     */
+    @Test
+    public void BoxTest() {
+        AnomalyStore store = new AnomalyStore(new int[] {2000, 2001, 2002});
+        store.addCell(0, -180, new float[] {1.f, 2.f, 3.f});
+        store.addCell(0, 0, new float[] {10.f, Float.NaN, 30.f});
+        store.addCell(0, 90, new float[] {5.f, 5.f, 5.f});
+        store.addCell(60, 0, new float[] {4.f, Float.NaN, Float.NaN});
+        store.complete();
+
+        RegionIndex index = RegionIndex.build(store);
+
+        assertEquals(10.f + 30.f + 4.f, index.getSum(-10, 70, -10, 10, 2000, 2002), 1e-6);
+        assertEquals(3, index.getCount(-10, 70, -10, 10, 2000, 2002));
+        assertEquals(0, index.getCount(-10, 70, -10, 10, 2001, 2001));
+        assertTrue(Float.isNaN(index.getMean(-10, 70, -10, 10, 2001, 2001, false)));
+
+        // cos(60°) = 0.5
+        assertEquals((10.f + 4.f * 0.5f) / 1.5f, index.getMean(-10, 70, -10, 10, 2000, 2000, true), 1e-5f);
+
+        // de 90°E à 180°W, à travers l'antiméridien
+        assertEquals(1.f + 2.f + 5.f + 5.f, index.getSum(-10, 10, 90, -180, 2000, 2001), 1e-6);
+        assertEquals(0, index.getCount(20, 50, -180, 180, 1990, 2010));
+
+        AnomalyStore.YearAppend append = store.appendYears(new int[] {2003});
+        append.set(store.cellIndexOf(0, 0), append.getFirstIndex(), -6.f);
+        append.publish();
+        index.update();
+
+        assertEquals(4, index.getYearCount());
+        assertEquals((10.f + 30.f - 6.f) / 3, index.getMean(-1, 1, -1, 1, 2000, 2003, false), 1e-5f);
+    }
+}
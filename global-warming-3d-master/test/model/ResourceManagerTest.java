@@ -0,0 +1,165 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class ResourceManagerTest {
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Vérifier que seules les années après la dernière sont ajoutées, avec
+     * leurs valeurs, le min/max et la dernière année mis à jour.
+     */
+    @Test
+    public void AppendTest() throws IOException {
+        ResourceManager rm = new ResourceManager();
+        rm.readTemperatureData(csv("\"lat\",\"lon\",\"2000\",\"2001\"\n"
+                                 + "-88,-178,0.5,NA\n"
+                                 + "-88,-174,1.0,-2.0\n"), "test.csv");
+
+        // 2000 et 2001 sont déjà connues : leurs valeurs (9) sont ignorées
+        int appended = rm.appendTemperatureData(csv("\"lat\",\"lon\",\"2000\",\"2001\",\"2002\",\"2003\"\n"
+                                                  + "-88,-178,9,9,3.5,NA\n"
+                                                  + "\n"
+                                                  + "-88,-174,9,9,-4,0.25\n"
+                                                  + "10,10,9,9,9,9\n"));
+
+        AnomalyStore store = rm.getAnomalyStore();
+        int first = store.cellIndexOf(-88, -178);
+        int second = store.cellIndexOf(-88, -174);
+
+        assertEquals(2, appended);
+        assertEquals(2003, rm.getMaxYear());
+        assertEquals(4, store.getYearCount());
+        assertEquals(-4.f, rm.getMinTempAnomaly(), 0.f);
+        assertEquals(3.5f, rm.getMaxTempAnomaly(), 0.f);
+
+        assertEquals(0.5f, store.get(first, 0), 0.f);
+        assertTrue(Float.isNaN(store.get(first, 1)));
+        assertEquals(3.5f, store.get(first, 2), 0.f);
+        assertTrue(Float.isNaN(store.get(first, 3)));
+        assertEquals(-2.f, store.get(second, 1), 0.f);
+        assertEquals(0.25f, store.get(second, 3), 0.f);
+        assertEquals(0.25f, store.copyYearSlice(3, new float[2])[second], 0.f);
+
+        // la zone inconnue est signalée
+        assertEquals(1, rm.getLoadErrors().size());
+
+        // un fichier sans nouvelle année ne change rien
+        assertEquals(0, rm.appendTemperatureData(csv("\"lat\",\"lon\",\"2003\"\n-88,-178,7\n")));
+        assertEquals(4, store.getYearCount());
+    }
+
+    /**
+     * Fichier de plusieurs blocs du lecteur parallèle, avec des "NA", des
+     * lignes vides et des lignes invalides.
+     */
+    private static String syntheticCsv() {
+        Random random = new Random(7);
+        StringBuilder csv = new StringBuilder("\"lat\",\"lon\"");
+        for (int y = 1990; y < 2002; y++) {
+            csv.append(",\"").append(y).append('"');
+        }
+        csv.append('\n');
+
+        int row = 0;
+        for (int lat = -89; lat < 90; lat += 2) {
+            for (int lon = -179; lon < 180; lon += 2, row++) {
+                if (row % 1000 == 0) {
+                    csv.append('\n');
+                }
+                csv.append(lat).append(',').append(lon);
+                int columns = row == 500 ? 5 : 12;
+                for (int y = 0; y < columns; y++) {
+                    csv.append(',');
+                    if (row == 3000 && y == 4) {
+                        csv.append("abc");
+                    } else if (random.nextInt(8) == 0) {
+                        csv.append("NA");
+                    } else {
+                        csv.append(random.nextInt(800) / 100.f - 4.f);
+                    }
+                }
+                csv.append('\n');
+            }
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Compare deux collections chargées : grille, années, min/max, erreurs,
+     * masque des "NA" et valeurs des deux dispositions.
+     */
+    static void assertSameLoad(ResourceManager expected, ResourceManager actual) {
+        AnomalyStore expectedStore = expected.getAnomalyStore();
+        AnomalyStore actualStore = actual.getAnomalyStore();
+
+        GridSpec expectedGrid = expectedStore.getGridSpec();
+        GridSpec actualGrid = actualStore.getGridSpec();
+        assertEquals(expectedGrid.getLatOrigin(), actualGrid.getLatOrigin(), 1e-6);
+        assertEquals(expectedGrid.getLonOrigin(), actualGrid.getLonOrigin(), 1e-6);
+        assertEquals(expectedGrid.getLatStep(), actualGrid.getLatStep(), 1e-6);
+        assertEquals(expectedGrid.getLonStep(), actualGrid.getLonStep(), 1e-6);
+        assertEquals(expectedGrid.getLatCount(), actualGrid.getLatCount());
+        assertEquals(expectedGrid.getLonCount(), actualGrid.getLonCount());
+
+        assertArrayEquals(expectedStore.getYears(), actualStore.getYears());
+        assertEquals(expectedStore.getCellCount(), actualStore.getCellCount());
+        assertEquals(expected.getMaxYear(), actual.getMaxYear());
+        assertEquals(0, Float.compare(expected.getMinTempAnomaly(), actual.getMinTempAnomaly()));
+        assertEquals(0, Float.compare(expected.getMaxTempAnomaly(), actual.getMaxTempAnomaly()));
+        assertEquals(expected.getLoadErrors(), actual.getLoadErrors());
+
+        float[] expectedSeries = new float[expectedStore.getYearCount()];
+        float[] actualSeries = new float[actualStore.getYearCount()];
+        for (int cell = 0; cell < expectedStore.getCellCount(); cell++) {
+            assertEquals(expectedStore.getCellLat(cell), actualStore.getCellLat(cell), 0.f);
+            assertEquals(expectedStore.getCellLon(cell), actualStore.getCellLon(cell), 0.f);
+            assertEquals(expectedStore.hasData(cell), actualStore.hasData(cell));
+            assertArrayEquals(expectedStore.copyCellSeries(cell, expectedSeries),
+                              actualStore.copyCellSeries(cell, actualSeries), 0.f);
+        }
+        for (int y = 0; y < expectedStore.getYearCount(); y++) {
+            assertArrayEquals(expectedStore.copyYearSlice(y, new float[expectedStore.getCellCount()]),
+                              actualStore.copyYearSlice(y, new float[actualStore.getCellCount()]), 0.f);
+        }
+    }
+
+    /**
+     * Vérifier que la lecture parallèle donne exactement la même collection
+     * que la lecture séquentielle, erreurs de lecture comprises.
+     */
+    @Test
+    public void ParallelLoadTest() throws IOException {
+        String content = syntheticCsv();
+
+        ResourceManager sequential = new ResourceManager();
+        sequential.readTemperatureData(csv(content), "test.csv");
+        ResourceManager parallel = new ResourceManager();
+        parallel.readTemperatureDataInParallel(csv(content), "test.csv");
+
+        assertEquals(90 * 180 - 2, sequential.getAnomalyStore().getCellCount());
+        assertEquals(2, sequential.getLoadErrors().size());
+        assertSameLoad(sequential, parallel);
+
+        // un en-tête invalide est rejeté de la même façon
+        String badHeader = content.replaceFirst("\"lon\"", "\"long\"");
+        sequential.readTemperatureData(csv(badHeader), "test.csv");
+        parallel.readTemperatureDataInParallel(csv(badHeader), "test.csv");
+
+        assertEquals(0, parallel.getAnomalyStore().getYearCount());
+        assertSameLoad(sequential, parallel);
+    }
+}
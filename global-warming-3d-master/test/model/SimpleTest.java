@@ -23,8 +23,9 @@ public class SimpleTest {
         
         try
         {
-//            resourceManager.readTemperatureFile(this.getClass().getResource("tempanomaly_4x4grid.csv").toURI().getPath());
-            resourceManager.readTemperatureFile("src/resources/tempanomaly_4x4grid.csv");
+            // The data file isn't versioned : the fixture keeps the same grid and
+            // years, with the values checked below and "NA" elsewhere
+            resourceManager.readTemperatureFile("/resources/tempanomaly_4x4grid-fixture.csv");
         }
         catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,30 @@
+package model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author adepreis
+ */
+public class TrendMapTest {
+
+    /**
+     * Vérifier la pente des moindres carrés en °C/décennie sur une période,
+     * sans les "NA", et l'absence de tendance quand trop d'années manquent.
+     */
+    @Test
+    public void SlopeTest() {
+        AnomalyStore store = new AnomalyStore(new int[] {2000, 2001, 2002, 2003, 2004, 2005});
+        // 0.1 °C par an, hors de la période en 2005
+        store.addCell(0, 0, new float[] {0.f, 0.1f, Float.NaN, 0.3f, 0.4f, 9.f});
+        store.addCell(0, 4, new float[] {1.f, Float.NaN, Float.NaN, Float.NaN, 2.f, 0.f});
+        store.complete();
+
+        TrendMap trendMap = TrendMap.compute(store, 2000, 2004);
+
+        assertEquals(1.f, trendMap.getTrend(0), 1e-5f);
+        assertTrue(Float.isNaN(trendMap.getTrend(1)));
+        assertEquals(1.f, trendMap.getMaxTrend(), 1e-5f);
+    }
+}
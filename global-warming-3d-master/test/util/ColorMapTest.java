@@ -0,0 +1,59 @@
+package util;
+
+import javafx.scene.paint.Color;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Antonin
+ */
+public class ColorMapTest {
+
+    /**
+     * Vérifier la table de correspondance d'une palette séquentielle : ses
+     * niveaux croissent du minimum au maximum, "NA" n'ayant pas de couleur.
+     */
+    @Test
+    public void SequentialLutTest() {
+        ColorMap map = ColorMap.sequential(4, Color.RED, Color.GREEN);
+        assertFalse(map.isDiverging());
+        assertEquals(5, map.getPaletteSize());
+        assertEquals(Color.RED, map.getColor(1));
+        assertEquals(Color.GREEN, map.getColor(4));
+
+        // chaque niveau occupe un quart de la table, dans l'ordre
+        int lutSize = map.getLutSize();
+        for (int entry = 0; entry < lutSize; entry++) {
+            assertEquals(1 + entry * 4 / lutSize, map.getLutIndex(entry));
+        }
+
+        PaletteIndexer indexer = map.indexer(-2.f, 2.f);
+        assertEquals(1, indexer.indexOf(-2.f));
+        assertEquals(2, indexer.indexOf(-0.5f));
+        assertEquals(3, indexer.indexOf(0.f));
+        assertEquals(4, indexer.indexOf(2.f));
+        // hors de l'intervalle : bornée aux niveaux extrêmes
+        assertEquals(1, indexer.indexOf(-5.f));
+        assertEquals(4, indexer.indexOf(5.f));
+        assertEquals(ColorMap.NO_ANOMALY_INDEX, indexer.indexOf(Float.NaN));
+
+        byte[] indexes = new byte[3];
+        indexer.indexAll(new float[] {-1.9f, Float.NaN, 1.9f}, indexes, 3);
+        assertArrayEquals(new byte[] {1, 0, 4}, indexes);
+    }
+
+    /**
+     * Vérifier qu'une palette divergente ne colore pas l'anomalie nulle.
+     */
+    @Test
+    public void DivergingLutTest() {
+        ColorMap map = ColorMap.diverging(2, new Color[] {Color.BLUE}, new Color[] {Color.RED});
+        assertTrue(map.isDiverging());
+
+        PaletteIndexer indexer = map.indexer(-2.f, 4.f);
+        assertEquals(ColorMap.NO_ANOMALY_INDEX, indexer.indexOf(0.f));
+        assertEquals(1, indexer.indexOf(-2.f));
+        assertEquals(4, indexer.indexOf(4.f));
+    }
+}
@@ -0,0 +1,41 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Antonin
+ */
+public class MetricHistogramTest {
+
+    /**
+     * Vérifier le nombre, le maximum, la moyenne et les percentiles des
+     * valeurs enregistrées, puis leur remise à zéro.
+     */
+    @Test
+    public void RecordTest() {
+        MetricHistogram histogram = new MetricHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+
+        assertEquals(101, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(0, histogram.getLast());
+        assertEquals(5050.0 / 101, histogram.getMean(), 1e-9);
+
+        // 50 est dans le seau [32, 63], 100 dans le seau [64, 127] borné par le maximum
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(99));
+        assertEquals(0, histogram.getPercentile(0));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+}
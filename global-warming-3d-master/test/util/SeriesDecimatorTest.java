@@ -0,0 +1,43 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Antonin
+ */
+public class SeriesDecimatorTest {
+
+    /**
+     * Vérifier qu'une série courte est gardée entière, et qu'une série longue
+     * est réduite au seuil en gardant ses extrémités et son pic.
+     */
+    @Test
+    public void LttbTest() {
+        int length = 1000;
+        double[] x = new double[length];
+        double[] y = new double[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = 1880 + i;
+            y[i] = Math.sin(i / 50.0);
+        }
+        y[437] = 10.0;
+
+        assertArrayEquals(new int[] {0, 1, 2, 3}, SeriesDecimator.largestTriangleThreeBuckets(x, y, 4, 10));
+
+        int[] kept = SeriesDecimator.largestTriangleThreeBuckets(x, y, length, 100);
+        assertEquals(100, kept.length);
+        assertEquals(0, kept[0]);
+        assertEquals(length - 1, kept[kept.length - 1]);
+        for (int k = 1; k < kept.length; k++) {
+            assertTrue(kept[k] > kept[k - 1]);
+        }
+
+        boolean peakKept = false;
+        for (int index : kept) {
+            peakKept |= index == 437;
+        }
+        assertTrue(peakKept);
+    }
+}
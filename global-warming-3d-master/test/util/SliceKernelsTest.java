@@ -0,0 +1,84 @@
+package util;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Antonin
+ */
+public class SliceKernelsTest {
+
+    /**
+     * Vérifier les noyaux sur des valeurs connues, puis les mêmes résultats
+     * que les boucles scalaires sur une tranche aléatoire (avec des "NA"),
+     * dont la longueur n'est pas un multiple des vecteurs.
+     */
+    @Test
+    public void KernelsTest() {
+        float[] anomalies = {2.f, -1.f, 0.f, Float.NaN, 1.f, -0.5f, 4.f};
+        int n = anomalies.length;
+
+        float[] normalised = SliceKernels.normalise(anomalies, -2.f, 4.f, new float[n], n);
+        assertArrayEquals(new float[] {0.5f, -0.5f, 0.f, 0.f, 0.25f, -0.25f, 1.f}, normalised, 0.f);
+        assertArrayEquals(new float[] {0.33f, -0.66f}, SliceKernels.truncate(new float[] {0.339f, -0.667f}, 100.f, new float[2], 2), 1e-6f);
+
+        assertEquals(-1.f, SliceKernels.min(anomalies, 0, n), 0.f);
+        assertEquals(4.f, SliceKernels.max(anomalies, 0, n), 0.f);
+        assertEquals(5.5, SliceKernels.sum(anomalies, 0, n), 1e-6);
+        assertEquals(6, SliceKernels.count(anomalies, 0, n));
+        assertEquals(Float.POSITIVE_INFINITY, SliceKernels.min(anomalies, 3, 4), 0.f);
+
+        Random random = new Random(42);
+        int length = 1003;
+        float[] from = new float[length];
+        float[] to = new float[length];
+        for (int i = 0; i < length; i++) {
+            from[i] = random.nextInt(10) == 0 ? Float.NaN : (float) random.nextGaussian();
+            to[i] = random.nextInt(10) == 0 ? Float.NaN : (random.nextInt(20) == 0 ? 0.f : (float) random.nextGaussian());
+        }
+        ScalarKernels scalar = new ScalarKernels();
+
+        float[] expected = new float[length];
+        scalar.normalise(from, -3.f, 3.f, expected, length);
+        float[] actual = SliceKernels.normalise(from, -3.f, 3.f, new float[length], length);
+        assertArrayEquals(expected, actual, 0.f);
+
+        byte[] lut = new byte[1024];
+        for (int i = 0; i < lut.length; i++) {
+            lut[i] = (byte) (1 + i / 103);
+        }
+        byte[] expectedIndexes = new byte[length];
+        scalar.paletteIndexes(expected, lut, (byte) 0, expectedIndexes, length);
+        assertArrayEquals(expectedIndexes, SliceKernels.paletteIndexes(actual, lut, (byte) 0, new byte[length], length));
+
+        scalar.truncate(from, 100.f, expected, length);
+        assertArrayEquals(expected, SliceKernels.truncate(from, 100.f, new float[length], length), 0.f);
+
+        scalar.interpolate(from, to, 0.3f, expected, length);
+        assertArrayEquals(expected, SliceKernels.interpolate(from, to, 0.3f, new float[length], length), 0.f);
+
+        assertEquals(scalar.min(from, 5, length), SliceKernels.min(from, 5, length), 0.f);
+        assertEquals(scalar.max(from, 5, length), SliceKernels.max(from, 5, length), 0.f);
+        assertEquals(scalar.count(from, 5, length), SliceKernels.count(from, 5, length));
+        assertEquals(scalar.sum(from, 5, length), SliceKernels.sum(from, 5, length), 1e-3);
+    }
+
+    /**
+     * Vérifier que la somme d'une grande tranche est accumulée en double,
+     * comme la boucle scalaire : seul l'ordre des additions diffère.
+     */
+    @Test
+    public void LargeSumTest() {
+        Random random = new Random(7);
+        int length = 1 << 20;
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextInt(10) == 0 ? Float.NaN : 1000.f + (float) random.nextGaussian();
+        }
+
+        double expected = new ScalarKernels().sum(values, 3, length);
+        assertEquals(expected, SliceKernels.sum(values, 3, length), Math.abs(expected) * 1e-12);
+    }
+}